@@ -1,40 +1,155 @@
 package com.taylor.redis.serivce.impl.annotation;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 
-import com.alibaba.fastjson.JSON;
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.taylor.common.jackson.JacksonUtil;
 import com.taylor.redis.service.impl.RedisSimpleClient;
+import com.taylor.redis.service.impl.invalidation.RedisInvalidationBus;
+import com.taylor.redis.service.impl.invalidation.RedisInvalidationListener;
 
 import lombok.extern.log4j.Log4j2;
 
 @Aspect
 @Component
 @Log4j2
-public class RedisCacheAspect {
+public class RedisCacheAspect implements InitializingBean, DisposableBean {
 
 	private static final int ONEDAY = 60 * 60 * 24; // 24h
 
+	/* 跨JVM加载锁的key后缀 */
+	private static final String LOCK_SUFFIX = ":lock";
+
+	/* 没抢到锁时轮询缓存的间隔 */
+	private static final long LOCK_WAIT_MILLIS = 20;
+
+	/* 等待本JVM内其他调用方加载的时间, 加在lockMillis之上(加载方可能先等完租约再加载); 超时后重读一次缓存 */
+	private static final long LOAD_WAIT_MILLIS = 3000;
+
+	/* 后台刷新的线程数和排队上限, 排满时跳过刷新继续返回旧值 */
+	private static final int REFRESH_THREADS = 4;
+
+	private static final int REFRESH_QUEUE = 1024;
+
+	/* 异步写缓存的待写key上限和每批写入的key数 */
+	private static final int WRITE_QUEUE = 10000;
+
+	private static final int WRITE_BATCH = 256;
+
+	private static final String UNLOCK_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
 	@Autowired
 	@Qualifier(value = "weimobSimpleRedisClient")
 	private RedisSimpleClient weimobRedisSimpleClient;
 
+	/* 每个注解方法的元数据只解析一次 */
+	private final ConcurrentMap<Method, RedisCacheMetadata> metadatas = new ConcurrentHashMap<Method, RedisCacheMetadata>();
+
+	/* 正在加载的key, 同一个key只有一个调用方执行方法 */
+	private final ConcurrentMap<String, CompletableFuture<Object>> loadings = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+	private final ExecutorService refreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(REFRESH_QUEUE), new ThreadFactory() {
+
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "redis-cache-refresh");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/* 延迟二次删除 */
+	private final ScheduledExecutorService delayExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "redis-cache-delay-delete");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/* 异步写缓存, asyncWrite的方法使用 */
+	private RedisCacheWriter cacheWriter;
+
+	/**
+	 * 启动异步写缓存; 开启了失效通知时, 收到本节点或其他节点的失效通知后清除本地缓存
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		cacheWriter = new RedisCacheWriter(weimobRedisSimpleClient, WRITE_QUEUE, WRITE_BATCH);
+		cacheWriter.register("weimobSimpleRedisClient");
+		cacheWriter.start();
+		RedisInvalidationBus invalidationBus = weimobRedisSimpleClient.getInvalidationBus();
+		if (null == invalidationBus) {
+			return;
+		}
+		invalidationBus.addListener(new RedisInvalidationListener() {
+
+			public void invalidate(int DBIndex, String key) {
+				invalidateLocal(DBIndex, key, false);
+			}
+
+			public void invalidatePrefix(int DBIndex, String prefix) {
+				invalidateLocal(DBIndex, prefix, true);
+			}
+		});
+	}
+
+	@Override
+	public void destroy() {
+		delayExecutor.shutdown();
+		refreshExecutor.shutdown();
+		if (null != cacheWriter) {
+			cacheWriter.shutdown();
+		}
+	}
+
+	public RedisCacheWriter getCacheWriter() {
+		return cacheWriter;
+	}
+
+	private RedisCacheMetadata getMetadata(Method method) {
+		RedisCacheMetadata metadata = metadatas.get(method);
+		if (metadata == null) {
+			metadatas.putIfAbsent(method, new RedisCacheMetadata(method));
+			metadata = metadatas.get(method);
+		}
+		return metadata;
+	}
+
 	@Around("@annotation(RedisCacheGet)")
 	public Object cacheGet(ProceedingJoinPoint joinPoint) throws Throwable {
 		MethodSignature signature = (MethodSignature) joinPoint.getSignature();
@@ -44,6 +159,15 @@ public class RedisCacheAspect {
 
 	}
 
+	@Around("@annotation(RedisCacheGetBatch)")
+	public Object cacheGetBatch(ProceedingJoinPoint joinPoint) throws Throwable {
+		MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+		Method method = signature.getMethod();
+		Object[] args = joinPoint.getArgs();
+		return goRedisCacheGetBatch(args, method, joinPoint);
+
+	}
+
 	@Around("@annotation(RedisCacheClean)")
 	public Object cacheClean(ProceedingJoinPoint joinPoint) throws Throwable {
 		MethodSignature signature = (MethodSignature) joinPoint.getSignature();
@@ -62,77 +186,257 @@ public class RedisCacheAspect {
 	 * @description redisCacheGet注解解析方法
 	 */
 	public Object goRedisCacheGet(Object[] args, Method method, ProceedingJoinPoint joinPoint) throws Throwable {
+		RedisCacheMetadata metadata = getMetadata(method);
+		RedisCacheGet methodType = metadata.getCacheGet();
+		String key = metadata.getKey(args);
+		if (methodType.force() == true) {// 强制更新数据
+			return proceedAndCache(metadata, key, joinPoint, args);
+		}
+		// 先查本地缓存, 未命中再查redis, redis命中的值放入本地缓存
+		RedisLocalCache localCache = metadata.getLocalCache();
+		RedisCacheEntry cached = null == localCache ? null : localCache.get(key);
+		if (cached == null) {
+			cached = getRedisValue(metadata, key);
+			if (cached != null && null != localCache) {
+				localCache.put(key, cached);
+			}
+			if (cached == null && methodType.asyncWrite()) {
+				// 刚加载还没写入redis的值
+				cached = cacheWriter.getPending(methodType.DBIndex(), key);
+			}
+		}
+		if (cached != null) {
+			if (needRefresh(methodType, cached)) {
+				refreshRedisValue(metadata, key, joinPoint, args, cached.getValue());
+			}
+			return cached.getValue();
+		}
+		// 查询数据，缓存，返回对象
+		return loadRedisValue(metadata, key, joinPoint, args);
+	}
 
-		ExpressionParser parser = new SpelExpressionParser();
-		EvaluationContext context = new StandardEvaluationContext();
+	/**
+	 * 读取缓存, 只读一次, 读到null即未缓存
+	 *
+	 * @return 未缓存时返回null
+	 */
+	private RedisCacheEntry getRedisValue(RedisCacheMetadata metadata, String key) {
+		RedisCacheGet methodType = metadata.getCacheGet();
+		if (methodType.dataType() == RedisCacheGet.DataType.JSON) {// JSON形式保存
+			byte[] value = weimobRedisSimpleClient.getBytes(methodType.DBIndex(), key);
+			if (value == null) {
+				return null;
+			}
+			try {
+				return RedisCacheEntry.fromJson(value, metadata.getReader());
+			} catch (Exception e) {
+				// 无法解析的旧值按未命中处理, 重新加载后覆盖
+				log.error("Parse redis cache key " + key + " failed: " + e.getMessage());
+				return null;
+			}
+		} else {// CLASS形式保存
+			Object cached = weimobRedisSimpleClient.getObject(methodType.DBIndex(), key);
+			if (cached == null) {
+				return null;
+			}
+			if (cached instanceof RedisCacheEntry) {
+				return (RedisCacheEntry) cached;
+			}
+			return new RedisCacheEntry(cached == RedisCacheNull.INSTANCE ? null : cached, 0, 0);
+		}
+	}
 
-		// 获取被拦截方法参数名列表(使用Spring支持类库)
-		LocalVariableTableParameterNameDiscoverer u = new LocalVariableTableParameterNameDiscoverer();
-		String[] paraNameArr = u.getParameterNames(method);
-		// 把方法参数放入SPEL上下文中
-		for (int i = 0; i < paraNameArr.length; i++) {
-			context.setVariable(paraNameArr[i], args[i]);
+	/**
+	 * 超过软过期, 或按XFetch随机提前: now - loadMillis * beta * ln(random) >= 过期时间
+	 */
+	private boolean needRefresh(RedisCacheGet methodType, RedisCacheEntry entry) {
+		if (entry.getCreateTime() <= 0 || (methodType.softExpire() <= 0 && methodType.refreshBeta() <= 0)) {
+			return false;
 		}
-		// 如果有这个注解，则获取注解类
-		RedisCacheGet methodType = method.getAnnotation(RedisCacheGet.class);
-		String key = parser.parseExpression(methodType.key()).getValue(context, String.class);
-		if (methodType.dataType() == RedisCacheGet.DataType.JSON) {// JSON形式保存
-			if (methodType.force() == true) {// 强制更新数据
-				Object object = joinPoint.proceed(args);
-				if (object != null) {
-					setRedisValueJson(methodType, key, object);
-				}
-				// 返回值类型
-				return object;
-			} else {
-				if (weimobRedisSimpleClient.exists(methodType.DBIndex(), key)) {
-					String json = weimobRedisSimpleClient.get(methodType.DBIndex(), key);
+		long expireSeconds = methodType.softExpire() > 0 ? methodType.softExpire() : getExpireSeconds(methodType);
+		if (expireSeconds <= 0) {
+			return false;
+		}
+		long expireTime = entry.getCreateTime() + TimeUnit.SECONDS.toMillis(expireSeconds);
+		long now = System.currentTimeMillis();
+		if (methodType.refreshBeta() > 0) {
+			double gap = Math.max(1, entry.getLoadMillis()) * methodType.refreshBeta() * -Math.log(ThreadLocalRandom.current().nextDouble());
+			return now + gap >= expireTime;
+		}
+		return now >= expireTime;
+	}
+
+	/**
+	 * 后台异步刷新, 同一个key同时只刷新一次; 刷新期间其他未命中的调用方等待刷新结果
+	 */
+	private void refreshRedisValue(final RedisCacheMetadata metadata, final String key, final ProceedingJoinPoint joinPoint, final Object[] args, final Object stale) {
+		final RedisCacheGet methodType = metadata.getCacheGet();
+		final String loadingKey = metadata.getLoadingPrefix() + methodType.DBIndex() + ":" + key;
+		final CompletableFuture<Object> loading = new CompletableFuture<Object>();
+		if (loadings.putIfAbsent(loadingKey, loading) != null) {
+			return;
+		}
+		try {
+			refreshExecutor.execute(new Runnable() {
 
+				public void run() {
+					String token = null;
 					try {
-						log.debug("redis" + method.getReturnType() + "key{}" + key + "\t value{}" + json);
-						if (method.getGenericReturnType().toString().contains("List") || method.getGenericReturnType().toString().contains("Set") || method.getGenericReturnType().toString().contains("Map")) {
-							ObjectMapper mapper = JacksonUtil.getInstance().getObjectMapper();
-							String clazzName = ((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0].toString().substring(6);
-							Object o = Class.forName(clazzName).newInstance();
-							JavaType javaType = getCollectionType(mapper, method.getReturnType(), o.getClass());
-							return JacksonUtil.getInstance().json2JavaType(json, javaType);
-						} else {
-							return JacksonUtil.getInstance().json2Bean(json, method.getReturnType());
+						if (methodType.lockMillis() > 0) {
+							// 其他节点正在刷新时跳过
+							token = tryLock(methodType, key);
+							if (token == null) {
+								loading.complete(stale);
+								return;
+							}
 						}
-					} catch (Exception e) {
-						log.error(e.getMessage());
-					}
-					return null;
-				} else {// 查询数据，缓存，返回对象
-					Object object = joinPoint.proceed(args);
-					if (object != null) {
-						setRedisValueJson(methodType, key, object);
+						loading.complete(proceedAndCache(metadata, key, joinPoint, args));
+					} catch (Throwable e) {
+						log.warn("Refresh redis cache key " + key + " failed", e);
+						loading.completeExceptionally(e);
+					} finally {
+						if (token != null) {
+							unlock(methodType.DBIndex(), key + LOCK_SUFFIX, token);
+						}
+						loadings.remove(loadingKey, loading);
 					}
-					return object;
 				}
-			}
-		} else {// CLASS形式保存
-			if (methodType.force() == true) {// 强制更新数据
-				Object object = joinPoint.proceed(args);
-				if (object != null) {
-					setRedisValueClass(methodType, key, object);
+			});
+		} catch (RejectedExecutionException e) {
+			loadings.remove(loadingKey, loading);
+			loading.complete(stale);
+		}
+	}
+
+	/**
+	 * 未命中时加载: 同一个key在本JVM内只有一个调用方执行方法, 其余调用方等待并共用它的结果;
+	 * 设置了lockMillis时还要先抢到redis中的租约锁, 没抢到的节点等待其他节点写入缓存.
+	 */
+	private Object loadRedisValue(RedisCacheMetadata metadata, String key, ProceedingJoinPoint joinPoint, Object[] args) throws Throwable {
+		RedisCacheGet methodType = metadata.getCacheGet();
+		String loadingKey = metadata.getLoadingPrefix() + methodType.DBIndex() + ":" + key;
+		CompletableFuture<Object> loading = new CompletableFuture<Object>();
+		CompletableFuture<Object> leader = loadings.putIfAbsent(loadingKey, loading);
+		while (leader != null) {
+			try {
+				return leader.get(methodType.lockMillis() + LOAD_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (ExecutionException e) {
+				throw e.getCause();
+			} catch (TimeoutException e) {
+				if (leader.isDone()) {
+					continue;
 				}
-				// 返回值类型
-				return object;
-			} else {
-				if (weimobRedisSimpleClient.exists(methodType.DBIndex(), key)) {// 对象存在直接返回
-					return weimobRedisSimpleClient.getObject(methodType.DBIndex(), key);
-				} else {// 查询数据，缓存，返回对象
-					Object object = joinPoint.proceed(args);
-					if (object != null) {
-						setRedisValueClass(methodType, key, object);
-					}
-					return object;
+				// 超时后重读一次, 仍未命中时不各自执行方法, 避免所有等待方同时打到数据库
+				RedisCacheEntry cached = getRedisValue(metadata, key);
+				if (cached == null && methodType.asyncWrite()) {
+					cached = cacheWriter.getPending(methodType.DBIndex(), key);
 				}
+				if (cached != null) {
+					return cached.getValue();
+				}
+				if (loadings.get(loadingKey) == leader) {
+					// 加载方还卡着
+					log.warn("Wait loading redis cache key " + key + " timeout");
+					throw e;
+				}
+				// 加载方已退出, 重新加入: 只有一个调用方接手加载, 其余继续等它
+				leader = loadings.putIfAbsent(loadingKey, loading);
+			}
+		}
+		try {
+			Object object;
+			if (methodType.lockMillis() > 0) {
+				object = loadWithLease(metadata, key, joinPoint, args);
+			} else {
+				object = proceedAndCache(metadata, key, joinPoint, args);
 			}
+			loading.complete(object);
+			return object;
+		} catch (Throwable e) {
+			loading.completeExceptionally(e);
+			throw e;
+		} finally {
+			loadings.remove(loadingKey, loading);
 		}
 	}
 
+	private Object loadWithLease(RedisCacheMetadata metadata, String key, ProceedingJoinPoint joinPoint, Object[] args) throws Throwable {
+		RedisCacheGet methodType = metadata.getCacheGet();
+		String token;
+		try {
+			token = tryLock(methodType, key);
+		} catch (RuntimeException e) {
+			log.warn("Lock redis cache key " + key + " failed", e);
+			return proceedAndCache(metadata, key, joinPoint, args);
+		}
+		if (token != null) {
+			try {
+				return proceedAndCache(metadata, key, joinPoint, args);
+			} finally {
+				unlock(methodType.DBIndex(), key + LOCK_SUFFIX, token);
+			}
+		}
+		// 其他节点正在加载, 在租期内等待其写入缓存, 超时后自己加载
+		long deadline = System.currentTimeMillis() + methodType.lockMillis();
+		while (System.currentTimeMillis() < deadline) {
+			Thread.sleep(LOCK_WAIT_MILLIS);
+			RedisCacheEntry cached = getRedisValue(metadata, key);
+			if (cached != null) {
+				return cached.getValue();
+			}
+		}
+		return proceedAndCache(metadata, key, joinPoint, args);
+	}
+
+	/**
+	 * @return 抢到锁时返回锁的token, 否则返回null
+	 */
+	private String tryLock(RedisCacheGet methodType, String key) {
+		String token = UUID.randomUUID().toString();
+		if ("OK".equals(weimobRedisSimpleClient.set(methodType.DBIndex(), key + LOCK_SUFFIX, token, "NX", "PX", methodType.lockMillis()))) {
+			return token;
+		}
+		return null;
+	}
+
+	private void unlock(int DBIndex, String lockKey, String token) {
+		try {
+			// 只释放自己持有的锁, 租期已过被其他节点抢到的锁不能删
+			weimobRedisSimpleClient.eval(DBIndex, UNLOCK_SCRIPT, Collections.singletonList(lockKey), Collections.singletonList(token));
+		} catch (RuntimeException e) {
+			log.warn("Unlock redis cache key " + lockKey + " failed", e);
+		}
+	}
+
+	private Object proceedAndCache(RedisCacheMetadata metadata, String key, ProceedingJoinPoint joinPoint, Object[] args) throws Throwable {
+		RedisCacheGet methodType = metadata.getCacheGet();
+		long start = System.currentTimeMillis();
+		Object object = joinPoint.proceed(args);
+		if (object != null || methodType.cacheNull()) {
+			long now = System.currentTimeMillis();
+			RedisCacheEntry entry = new RedisCacheEntry(object, now, now - start);
+			if (methodType.asyncWrite()) {
+				// 序列化和写入交给后台线程, 队列满时放弃这次写入
+				cacheWriter.submit(metadata, methodType.DBIndex(), key, getExpireSeconds(methodType), entry);
+			} else if (methodType.dataType() == RedisCacheGet.DataType.JSON) {
+				setRedisValueJson(methodType, key, metadata.toJsonValue(object, now, now - start));
+			} else {
+				setRedisValueClass(methodType, key, metadata.toClassValue(object, now, now - start));
+			}
+			if (null != metadata.getLocalCache()) {
+				metadata.getLocalCache().put(key, entry);
+			}
+		}
+		return object;
+	}
+
+	/**
+	 * 0:永不过期, 1:24h, 其他为手动指定
+	 */
+	private static int getExpireSeconds(RedisCacheGet methodType) {
+		return methodType.expire() == 1 ? ONEDAY : methodType.expire();
+	}
+
 	/**
 	 * @param methodType
 	 * @param key
@@ -154,16 +458,102 @@ public class RedisCacheAspect {
 	 * @param key
 	 * @param object
 	 */
-	private void setRedisValueJson(RedisCacheGet methodType, String key, Object object) {
+	private void setRedisValueJson(RedisCacheGet methodType, String key, byte[] json) {
+		weimobRedisSimpleClient.setBytes(methodType.DBIndex(), key, getExpireSeconds(methodType), json);
+	}
 
-		if (methodType.expire() == 0) {// 0:永不过期
-			weimobRedisSimpleClient.set(methodType.DBIndex(), key, JSON.toJSONString(object));
-		} else if (methodType.expire() == 1) {// 1:过期时间为24h
-			weimobRedisSimpleClient.set(methodType.DBIndex(), key, ONEDAY, JSON.toJSONString(object));
-		} else {// 手动指定
-			weimobRedisSimpleClient.set(methodType.DBIndex(), key, methodType.expire(), JSON.toJSONString(object));
+	/**
+	 * @param args
+	 * @param method
+	 * @param joinPoint
+	 * @return
+	 * @throws Throwable
+	 * @description redisCacheGetBatch注解解析方法: 一次管道读出全部key, 只用未命中的id调用方法, 结果一次管道写回
+	 */
+	public Object goRedisCacheGetBatch(Object[] args, Method method, ProceedingJoinPoint joinPoint) throws Throwable {
+		RedisCacheMetadata metadata = getMetadata(method);
+		RedisCacheGetBatch methodType = metadata.getCacheGetBatch();
+		Collection<?> ids = (Collection<?>) args[metadata.getBatchIdsIndex()];
+		if (ids == null || ids.isEmpty()) {
+			return joinPoint.proceed(args);
 		}
+		Map<Object, String> idKeys = metadata.getBatchKeys(args, ids);
+		Map<String, byte[]> cached = weimobRedisSimpleClient.getBatchBytes(methodType.DBIndex(), new ArrayList<String>(idKeys.values()));
+		// key -> 值
+		Map<String, Object> values = new HashMap<String, Object>();
+		List<Object> missing = new ArrayList<Object>();
+		for (Entry<Object, String> entry : idKeys.entrySet()) {
+			byte[] json = cached.get(entry.getValue());
+			Object value = json == null ? null : parseBatchJson(metadata, entry.getValue(), json);
+			if (value == null) {
+				missing.add(entry.getKey());
+			} else {
+				values.put(entry.getValue(), value);
+			}
+		}
+		if (!missing.isEmpty()) {
+			Object[] missingArgs = args.clone();
+			missingArgs[metadata.getBatchIdsIndex()] = ids instanceof Set ? new LinkedHashSet<Object>(missing) : missing;
+			Object loaded = joinPoint.proceed(missingArgs);
+			if (loaded != null) {
+				Map<Object, Object> loadedItems = new LinkedHashMap<Object, Object>();
+				if (metadata.isBatchReturnsMap()) {
+					loadedItems.putAll((Map<?, ?>) loaded);
+				} else {
+					for (Object item : (Collection<?>) loaded) {
+						if (item != null) {
+							loadedItems.put(metadata.getBatchItemId(item), item);
+						}
+					}
+				}
+				Map<Object, String> loadedKeys = metadata.getBatchKeys(args, loadedItems.keySet());
+				Map<String, byte[]> writes = new HashMap<String, byte[]>();
+				for (Entry<Object, Object> entry : loadedItems.entrySet()) {
+					if (entry.getValue() != null) {
+						String key = loadedKeys.get(entry.getKey());
+						values.put(key, entry.getValue());
+						writes.put(key, metadata.getBatchWriter().writeValueAsBytes(entry.getValue()));
+					}
+				}
+				setRedisBatchJson(methodType, writes);
+			}
+		}
+		// 按传入的id顺序组装返回值
+		if (metadata.isBatchReturnsMap()) {
+			Map<Object, Object> result = new LinkedHashMap<Object, Object>();
+			for (Entry<Object, String> entry : idKeys.entrySet()) {
+				Object value = values.get(entry.getValue());
+				if (value != null) {
+					result.put(entry.getKey(), value);
+				}
+			}
+			return result;
+		}
+		List<Object> result = new ArrayList<Object>();
+		for (String key : idKeys.values()) {
+			Object value = values.get(key);
+			if (value != null) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
 
+	private Object parseBatchJson(RedisCacheMetadata metadata, String key, byte[] json) {
+		try {
+			return metadata.getBatchReader().readValue(json);
+		} catch (Exception e) {
+			log.error("Parse redis cache key " + key + " failed: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void setRedisBatchJson(RedisCacheGetBatch methodType, Map<String, byte[]> values) {
+		if (values.isEmpty()) {
+			return;
+		}
+		// 0:永不过期, 1:24h, 其他为手动指定
+		weimobRedisSimpleClient.setBatchBytes(methodType.DBIndex(), values, methodType.expire() == 1 ? ONEDAY : methodType.expire());
 	}
 
 	/**
@@ -175,29 +565,59 @@ public class RedisCacheAspect {
 	 * @description redisCache 清除方法
 	 */
 	public Object goRedisCacheClean(Object[] args, Method method, ProceedingJoinPoint joinPoint) throws Throwable {
-		ExpressionParser parser = new SpelExpressionParser();
-		EvaluationContext context = new StandardEvaluationContext();
-
-		// 获取被拦截方法参数名列表(使用Spring支持类库)
-		LocalVariableTableParameterNameDiscoverer u = new LocalVariableTableParameterNameDiscoverer();
-		String[] paraNameArr = u.getParameterNames(method);
-		// 把方法参数放入SPEL上下文中
-		for (int i = 0; i < paraNameArr.length; i++) {
-			context.setVariable(paraNameArr[i], args[i]);
-		}
-		// 如果有这个注解，则获取注解类
+		RedisCacheMetadata metadata = getMetadata(method);
 		Object object = joinPoint.proceed(args);
 
 		// 如果有这个注解，则获取注解类
-		RedisCacheClean methodType = method.getAnnotation(RedisCacheClean.class);
-		for (String str : methodType.key()) {
-			String key = parser.parseExpression(str).getValue(context, String.class);
-			weimobRedisSimpleClient.del(methodType.DBIndex(), key);
+		final RedisCacheClean methodType = metadata.getCacheClean();
+		final List<String> keys = Arrays.asList(metadata.getCleanKeys(args));
+		deleteKeys(methodType.DBIndex(), keys);
+		if (methodType.delayDelete() > 0) {
+			delayExecutor.schedule(new Runnable() {
+
+				public void run() {
+					try {
+						deleteKeys(methodType.DBIndex(), keys);
+					} catch (Exception e) {
+						log.warn("Delay delete redis cache keys " + keys + " failed", e);
+					}
+				}
+			}, methodType.delayDelete(), TimeUnit.MILLISECONDS);
 		}
 		return object;
 	}
 
-	private static JavaType getCollectionType(ObjectMapper mapper, Class<?> collectionClass, Class<?>... elementClasses) {
-		return mapper.getTypeFactory().constructParametricType(collectionClass, elementClasses);
+	/**
+	 * 一次管道删除全部key, 并清除本地缓存; 先丢弃异步写队列中这些key的值, 延迟删除时再丢弃一次
+	 */
+	private void deleteKeys(int DBIndex, List<String> keys) {
+		if (null != cacheWriter) {
+			for (String key : keys) {
+				cacheWriter.cancel(DBIndex, key);
+			}
+		}
+		// 开启失效通知时删除会通知所有节点(含本节点)
+		weimobRedisSimpleClient.delBatch(DBIndex, keys);
+		if (null == weimobRedisSimpleClient.getInvalidationBus()) {
+			for (String key : keys) {
+				invalidateLocal(DBIndex, key, false);
+			}
+		}
+	}
+
+	/**
+	 * 清除本节点上同一个库中所有方法的本地缓存里的key(或前缀), DBIndex小于0时不区分库
+	 */
+	private void invalidateLocal(int DBIndex, String key, boolean prefix) {
+		for (RedisCacheMetadata metadata : metadatas.values()) {
+			RedisLocalCache localCache = metadata.getLocalCache();
+			if (null != localCache && (DBIndex < 0 || metadata.getCacheGet().DBIndex() == DBIndex)) {
+				if (prefix) {
+					localCache.invalidatePrefix(key);
+				} else {
+					localCache.invalidate(key);
+				}
+			}
+		}
 	}
 }
@@ -25,4 +25,12 @@ public @interface RedisCacheClean {
 	 */
 	public String[] key();
 
+	/**
+	 * 延迟二次删除的时间, 单位为 MS, 大于0时删除后再延迟删除一次,
+	 * 清除删除前后并发读到旧数据又写回缓存的值; 0:不开启
+	 *
+	 * @return
+	 */
+	public long delayDelete() default 0;
+
 }
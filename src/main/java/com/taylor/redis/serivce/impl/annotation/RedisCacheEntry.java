@@ -0,0 +1,78 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.Getter;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 带加载信息的缓存值, 开启softExpire或refreshBeta时写入, 用来判断是否需要提前刷新.
+ * CLASS形式直接保存该对象, JSON形式在JSON前加头部: \u0001写入时间:加载耗时\u0001
+ */
+@Getter
+public class RedisCacheEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/* JSON头部标记, 不是合法的JSON开头, 没有头部的旧值仍可读 */
+	private static final char JSON_HEADER = '\u0001';
+
+	private final Object value;
+
+	/* 写入时间(ms), 0表示未知 */
+	private final long createTime;
+
+	/* 加载耗时(ms) */
+	private final long loadMillis;
+
+	public RedisCacheEntry(Object value, long createTime, long loadMillis) {
+		this.value = value;
+		this.createTime = createTime;
+		this.loadMillis = loadMillis;
+	}
+
+	/**
+	 * 在JSON字节前加上头部
+	 */
+	public static byte[] toJson(byte[] json, long createTime, long loadMillis) {
+		byte[] header = SafeEncoder.encode(JSON_HEADER + String.valueOf(createTime) + ':' + loadMillis + JSON_HEADER);
+		byte[] data = new byte[header.length + json.length];
+		System.arraycopy(header, 0, data, 0, header.length);
+		System.arraycopy(json, 0, data, header.length, json.length);
+		return data;
+	}
+
+	/**
+	 * 解析头部, 去掉头部后的JSON直接从字节流解析成value, 不经过String
+	 */
+	public static RedisCacheEntry fromJson(byte[] data, ObjectReader reader) throws IOException {
+		int offset = 0;
+		long createTime = 0;
+		long loadMillis = 0;
+		if (data.length > 0 && data[0] == JSON_HEADER) {
+			int split = indexOf(data, (byte) ':', 1);
+			int end = split < 0 ? -1 : indexOf(data, (byte) JSON_HEADER, split + 1);
+			if (end > 0) {
+				createTime = Long.parseLong(SafeEncoder.encode(Arrays.copyOfRange(data, 1, split)));
+				loadMillis = Long.parseLong(SafeEncoder.encode(Arrays.copyOfRange(data, split + 1, end)));
+				offset = end + 1;
+			}
+		}
+		int length = data.length - offset;
+		Object value = RedisCacheNull.isJsonNull(data, offset, length) ? null : reader.readValue(data, offset, length);
+		return new RedisCacheEntry(value, createTime, loadMillis);
+	}
+
+	private static int indexOf(byte[] data, byte b, int from) {
+		for (int i = from; i < data.length; i++) {
+			if (data[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
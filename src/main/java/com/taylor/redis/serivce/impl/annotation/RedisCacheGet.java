@@ -48,14 +48,56 @@ public @interface RedisCacheGet {
      */
     public DataType dataType() default DataType.JSON;
 
-}
+    /**
+     * 方法返回null时是否缓存空值, 防止不存在的数据反复穿透到数据库, 空值同样按expire过期
+     *
+     * @return
+     */
+    public boolean cacheNull() default false;
+
+    /**
+     * 跨JVM加载锁的租期(毫秒), 大于0时未命中的key只有抢到锁(SET NX PX)的节点执行方法,
+     * 其余节点在租期内等待缓存写入, 超时后自己加载; 0:只在本JVM内合并加载
+     *
+     * @return
+     */
+    public int lockMillis() default 0;
 
-/*
-    <aop:config>
-        <aop:aspect ref="redisCacheAspect">
-           <!--配置扫描的包-->
-            <aop:pointcut expression="execution(* foo.bar.*.*(..))" id="redisCachePoint"/>
-            <aop:around method="around(org.aspectj.lang.ProceedingJoinPoint)" pointcut-ref="redisCachePoint" />
-        </aop:aspect>
-    </aop:config>
-*/
+    /**
+     * 软过期时间, 单位为 S, 超过后仍直接返回缓存的值, 同时在后台异步重新加载; 0:不开启
+     *
+     * @return
+     */
+    public int softExpire() default 0;
+
+    /**
+     * 提前刷新系数(XFetch), 大于0时按加载耗时随机地在软过期(没有软过期时为expire)之前提前异步刷新,
+     * 越热的key越早刷新, 避免同时过期; 一般取1.0, 0:不开启
+     *
+     * @return
+     */
+    public double refreshBeta() default 0;
+
+    /**
+     * 本地(进程内)缓存的过期时间, 单位为 S, 大于0时先查本地缓存再查redis,
+     * 同一节点上的@RedisCacheClean会同时清除本地缓存; 本地缓存返回的是同一个对象, 调用方不能修改. 0:不开启
+     *
+     * @return
+     */
+    public int localTtl() default 0;
+
+    /**
+     * 本地缓存的最大条数, 超过后按W-TinyLFU淘汰
+     *
+     * @return
+     */
+    public int localMaxEntries() default 10000;
+
+    /**
+     * 是否异步写缓存, true时未命中加载后直接返回, 序列化和写redis由后台线程批量完成,
+     * 同一个key未写入的值只保留最新的, 队列满时丢弃; 写入完成前本节点的读取仍能读到待写的值
+     *
+     * @return
+     */
+    public boolean asyncWrite() default false;
+}
@@ -0,0 +1,58 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 批量查询缓存: 按ids参数中的每个元素生成一个key, 一次管道读出全部缓存, 只用未命中的id调用方法,
+ * 再把查到的结果一次管道写回. 方法的返回值必须是Map(key为id)或List, 值以JSON形式保存.
+ *
+ * <pre>
+ * &#64;RedisCacheGetBatch(ids = "ids", key = "'user:' + #id", itemId = "id", expire = 600)
+ * public List&lt;User&gt; getUsers(List&lt;Long&gt; ids)
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface RedisCacheGetBatch {
+
+	/**
+	 * 保存数据库
+	 *
+	 * @return
+	 */
+	public int DBIndex() default 0;
+
+	/**
+	 * id集合的参数名, 参数类型为List或Set
+	 *
+	 * @return
+	 */
+	public String ids();
+
+	/**
+	 * 每个元素的key值, 元素用#id表示, 也可以引用其他参数
+	 *
+	 * @return
+	 */
+	public String key();
+
+	/**
+	 * 返回List时从元素中取id的表达式, 以元素为根对象, 如 id
+	 *
+	 * @return
+	 */
+	public String itemId() default "";
+
+	/**
+	 * 缓存过期时间, 单位为 S, 0:不限制保存时长, 1:24h
+	 *
+	 * @return
+	 */
+	public int expire() default 0;
+
+}
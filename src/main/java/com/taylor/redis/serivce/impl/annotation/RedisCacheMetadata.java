@@ -0,0 +1,211 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.taylor.common.exceptions.CommonRuntimeException;
+import com.taylor.common.jackson.JacksonUtil;
+
+import lombok.Getter;
+
+/**
+ * 缓存注解方法的元数据, 每个方法只解析一次: 参数名, 解析(并尽量编译)后的key表达式, 注解实例及返回类型.
+ * 批量注解另有id参数的位置, 元素的key/id表达式和元素类型. JSON的读写器按完整泛型类型预先构建.
+ */
+@Getter
+public class RedisCacheMetadata {
+
+	/* 解释执行若干次后编译成字节码, 编译失败时退回解释执行 */
+	private static final ExpressionParser PARSER = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, RedisCacheMetadata.class.getClassLoader()));
+
+	private static final ParameterNameDiscoverer DISCOVERER = new LocalVariableTableParameterNameDiscoverer();
+
+	private final Method method;
+
+	private final String[] parameterNames;
+
+	private final RedisCacheGet cacheGet;
+
+	private final RedisCacheClean cacheClean;
+
+	private final Expression getKey;
+
+	private final Expression[] cleanKeys;
+
+	private final RedisCacheGetBatch cacheGetBatch;
+
+	private final Expression batchKey;
+
+	private final Expression batchItemId;
+
+	/* ids参数的位置 */
+	private final int batchIdsIndex;
+
+	/* 返回Map时为true, 返回List时为false */
+	private final boolean batchReturnsMap;
+
+	/* Map的值类型或List的元素类型 */
+	private final JavaType batchItemType;
+
+	private final Class<?> returnType;
+
+	private final Type genericReturnType;
+
+	/* 完整的泛型返回类型, JSON读写共用 */
+	private final JavaType returnJavaType;
+
+	private final ObjectReader reader;
+
+	private final ObjectWriter writer;
+
+	private final ObjectReader batchReader;
+
+	private final ObjectWriter batchWriter;
+
+	/* 本地缓存, 未开启localTtl时为空 */
+	private final RedisLocalCache localCache;
+
+	/* 合并加载时key的前缀, 不同方法拼出相同的缓存key时不共用加载结果 */
+	private final String loadingPrefix;
+
+	public RedisCacheMetadata(Method method) {
+		this.method = method;
+		String[] names = DISCOVERER.getParameterNames(method);
+		this.parameterNames = null == names ? new String[0] : names;
+		this.cacheGet = method.getAnnotation(RedisCacheGet.class);
+		this.cacheClean = method.getAnnotation(RedisCacheClean.class);
+		this.getKey = null == cacheGet ? null : PARSER.parseExpression(cacheGet.key());
+		this.localCache = null == cacheGet || cacheGet.localTtl() <= 0 ? null : new RedisLocalCache(cacheGet.localMaxEntries(), TimeUnit.SECONDS.toMillis(cacheGet.localTtl()));
+		this.loadingPrefix = method.toString() + "#";
+		if (null != cacheClean) {
+			cleanKeys = new Expression[cacheClean.key().length];
+			for (int i = 0; i < cleanKeys.length; i++) {
+				cleanKeys[i] = PARSER.parseExpression(cacheClean.key()[i]);
+			}
+		} else {
+			cleanKeys = new Expression[0];
+		}
+		this.returnType = method.getReturnType();
+		this.genericReturnType = method.getGenericReturnType();
+		ObjectMapper mapper = JacksonUtil.getInstance().getObjectMapper();
+		this.returnJavaType = mapper.getTypeFactory().constructType(genericReturnType);
+		this.reader = null == cacheGet ? null : mapper.readerFor(returnJavaType);
+		this.writer = null == cacheGet ? null : mapper.writerFor(returnJavaType);
+		this.cacheGetBatch = method.getAnnotation(RedisCacheGetBatch.class);
+		if (null != cacheGetBatch) {
+			batchKey = PARSER.parseExpression(cacheGetBatch.key());
+			batchItemId = cacheGetBatch.itemId().isEmpty() ? null : PARSER.parseExpression(cacheGetBatch.itemId());
+			batchIdsIndex = indexOf(parameterNames, cacheGetBatch.ids());
+			if (batchIdsIndex < 0 || !Collection.class.isAssignableFrom(method.getParameterTypes()[batchIdsIndex])) {
+				throw new CommonRuntimeException("RedisCacheGetBatch ids must be a List or Set parameter of " + method);
+			}
+			batchReturnsMap = Map.class.isAssignableFrom(returnType);
+			if (!batchReturnsMap && (!returnType.isAssignableFrom(List.class) || null == batchItemId)) {
+				throw new CommonRuntimeException("RedisCacheGetBatch method must return Map, or List with itemId: " + method);
+			}
+			batchItemType = returnJavaType.getContentType();
+			batchReader = mapper.readerFor(batchItemType);
+			batchWriter = mapper.writerFor(batchItemType);
+		} else {
+			batchKey = null;
+			batchItemId = null;
+			batchIdsIndex = -1;
+			batchReturnsMap = false;
+			batchItemType = null;
+			batchReader = null;
+			batchWriter = null;
+		}
+	}
+
+	/**
+	 * JSON形式保存的值, 开启提前刷新时带上写入时间和加载耗时
+	 */
+	public byte[] toJsonValue(Object object, long createTime, long loadMillis) throws IOException {
+		byte[] json = object == null ? RedisCacheNull.JSON_VALUE : writer.writeValueAsBytes(object);
+		return isWithEntry() ? RedisCacheEntry.toJson(json, createTime, loadMillis) : json;
+	}
+
+	/**
+	 * CLASS形式保存的值, 开启提前刷新时带上写入时间和加载耗时
+	 */
+	public Object toClassValue(Object object, long createTime, long loadMillis) {
+		if (isWithEntry()) {
+			return new RedisCacheEntry(object, createTime, loadMillis);
+		}
+		return object == null ? RedisCacheNull.INSTANCE : object;
+	}
+
+	private boolean isWithEntry() {
+		return cacheGet.softExpire() > 0 || cacheGet.refreshBeta() > 0;
+	}
+
+	private static int indexOf(String[] names, String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 把方法参数放入SPEL上下文中
+	 */
+	public EvaluationContext createContext(Object[] args) {
+		EvaluationContext context = new StandardEvaluationContext();
+		for (int i = 0; i < parameterNames.length && i < args.length; i++) {
+			context.setVariable(parameterNames[i], args[i]);
+		}
+		return context;
+	}
+
+	public String getKey(Object[] args) {
+		return getKey.getValue(createContext(args), String.class);
+	}
+
+	/**
+	 * 按ids的顺序返回每个id的key
+	 */
+	public Map<Object, String> getBatchKeys(Object[] args, Collection<?> ids) {
+		EvaluationContext context = createContext(args);
+		Map<Object, String> keys = new LinkedHashMap<Object, String>();
+		for (Object id : ids) {
+			context.setVariable("id", id);
+			keys.put(id, batchKey.getValue(context, String.class));
+		}
+		return keys;
+	}
+
+	public Object getBatchItemId(Object item) {
+		return batchItemId.getValue(item);
+	}
+
+	public String[] getCleanKeys(Object[] args) {
+		EvaluationContext context = createContext(args);
+		String[] keys = new String[cleanKeys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = cleanKeys[i].getValue(context, String.class);
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,24 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+/**
+ * 缓存的空值标记, 一次读取即可区分"没有缓存"(读到null)和"缓存了null"(读到标记)
+ */
+public enum RedisCacheNull {
+
+	INSTANCE;
+
+	/* JSON格式的空值标记(\u0000null), 不是合法的JSON, 不会与正常缓存的值冲突 */
+	public static final byte[] JSON_VALUE = { 0, 'n', 'u', 'l', 'l' };
+
+	public static boolean isJsonNull(byte[] json, int offset, int length) {
+		if (length != JSON_VALUE.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (json[offset + i] != JSON_VALUE[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
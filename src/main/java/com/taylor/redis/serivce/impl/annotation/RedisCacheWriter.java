@@ -0,0 +1,313 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.taylor.redis.service.impl.RedisSimpleClient;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * 异步写缓存: 调用方只把值放入队列, 后台线程序列化后按库和过期时间分组, 每组一次管道写入.
+ * 同一个key未写入时只保留最新的值, 待写的key数达到上限时丢弃新的写入.
+ */
+@Log4j2
+public class RedisCacheWriter implements RedisCacheWriterMXBean {
+
+	private static class PendingWrite {
+
+		private final RedisCacheMetadata metadata;
+
+		private final int DBIndex;
+
+		private final String key;
+
+		private final int seconds;
+
+		private final RedisCacheEntry entry;
+
+		PendingWrite(RedisCacheMetadata metadata, int DBIndex, String key, int seconds, RedisCacheEntry entry) {
+			this.metadata = metadata;
+			this.DBIndex = DBIndex;
+			this.key = key;
+			this.seconds = seconds;
+			this.entry = entry;
+		}
+	}
+
+	private final RedisSimpleClient client;
+
+	private final int capacity;
+
+	/* 每次最多取出写入的key数 */
+	private final int maxBatch;
+
+	/* 库号:key -> 最新的待写值 */
+	private final ConcurrentMap<String, PendingWrite> pending = new ConcurrentHashMap<String, PendingWrite>();
+
+	/* 待写key的先后顺序, 每个待写key只出现一次 */
+	private final LinkedBlockingQueue<String> order = new LinkedBlockingQueue<String>();
+
+	/* 后台线程已取出正在写入的key -> 写入期间是否被取消, 被取消的key写完后再删除一次 */
+	private final ConcurrentMap<String, Boolean> inflight = new ConcurrentHashMap<String, Boolean>();
+
+	private final LongAdder written = new LongAdder();
+
+	private final LongAdder coalesced = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder cancelled = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final Thread worker;
+
+	private volatile boolean running = true;
+
+	private ObjectName objectName;
+
+	public RedisCacheWriter(RedisSimpleClient client, int capacity, int maxBatch) {
+		this.client = client;
+		this.capacity = capacity;
+		this.maxBatch = maxBatch;
+		this.worker = new Thread(new Runnable() {
+
+			public void run() {
+				while (running) {
+					try {
+						List<String> keys = new ArrayList<String>();
+						keys.add(order.take());
+						order.drainTo(keys, RedisCacheWriter.this.maxBatch - 1);
+						write(keys);
+					} catch (InterruptedException e) {
+						break;
+					} catch (Exception e) {
+						log.warn("Write redis cache failed", e);
+					}
+				}
+			}
+		}, "redis-cache-writer");
+		this.worker.setDaemon(true);
+	}
+
+	public void start() {
+		worker.start();
+	}
+
+	/**
+	 * @return 队列满被丢弃时返回false
+	 */
+	public boolean submit(RedisCacheMetadata metadata, int DBIndex, String key, int seconds, RedisCacheEntry entry) {
+		String pendingKey = DBIndex + ":" + key;
+		PendingWrite write = new PendingWrite(metadata, DBIndex, key, seconds, entry);
+		if (pending.replace(pendingKey, write) != null) {
+			coalesced.increment();
+			return true;
+		}
+		if (pending.size() >= capacity) {
+			dropped.increment();
+			return false;
+		}
+		if (pending.putIfAbsent(pendingKey, write) != null) {
+			// 并发提交了同一个key, 已在队列中, 覆盖成最新的值
+			pending.put(pendingKey, write);
+			coalesced.increment();
+			return true;
+		}
+		order.add(pendingKey);
+		return true;
+	}
+
+	/**
+	 * @return 还没写入redis的值, 没有时返回null
+	 */
+	public RedisCacheEntry getPending(int DBIndex, String key) {
+		PendingWrite write = pending.get(DBIndex + ":" + key);
+		return write == null ? null : write.entry;
+	}
+
+	/**
+	 * 丢弃还没写入的值, 清除缓存时调用, 避免刚删除的key又被写回; 已被后台线程取出正在写入的key, 写完后由后台线程再删除
+	 */
+	public void cancel(int DBIndex, String key) {
+		String pendingKey = DBIndex + ":" + key;
+		// 先出队再删值: 并发提交的新值要么随之丢弃, 要么重新入队, 不会留下不在队列中的值
+		order.remove(pendingKey);
+		boolean removed = pending.remove(pendingKey) != null;
+		// 在删值之后标记: 后台线程先登记再读值, 读到值的key一定能被标记到
+		if (inflight.replace(pendingKey, Boolean.TRUE) != null || removed) {
+			cancelled.increment();
+		}
+	}
+
+	private void write(List<String> keys) {
+		// 按库号, 过期时间和保存形式分组, 每组一次管道
+		Map<String, Map<String, byte[]>> jsonGroups = new HashMap<String, Map<String, byte[]>>();
+		Map<String, Map<String, Object>> classGroups = new HashMap<String, Map<String, Object>>();
+		Map<String, PendingWrite> groupTargets = new HashMap<String, PendingWrite>();
+		Map<String, PendingWrite> done = new HashMap<String, PendingWrite>();
+		for (String pendingKey : keys) {
+			inflight.put(pendingKey, Boolean.FALSE);
+			PendingWrite write = pending.get(pendingKey);
+			if (write == null) {
+				inflight.remove(pendingKey);
+				continue;
+			}
+			String group = write.DBIndex + ":" + write.seconds;
+			groupTargets.put(group, write);
+			RedisCacheEntry entry = write.entry;
+			try {
+				if (write.metadata.getCacheGet().dataType() == RedisCacheGet.DataType.JSON) {
+					Map<String, byte[]> values = jsonGroups.get(group);
+					if (values == null) {
+						values = new HashMap<String, byte[]>();
+						jsonGroups.put(group, values);
+					}
+					values.put(write.key, write.metadata.toJsonValue(entry.getValue(), entry.getCreateTime(), entry.getLoadMillis()));
+				} else {
+					Map<String, Object> values = classGroups.get(group);
+					if (values == null) {
+						values = new HashMap<String, Object>();
+						classGroups.put(group, values);
+					}
+					values.put(write.key, write.metadata.toClassValue(entry.getValue(), entry.getCreateTime(), entry.getLoadMillis()));
+				}
+				done.put(pendingKey, write);
+			} catch (Exception e) {
+				failed.increment();
+				inflight.remove(pendingKey);
+				pending.remove(pendingKey, write);
+				log.warn("Serialize redis cache key " + write.key + " failed", e);
+			}
+		}
+		try {
+			for (Map.Entry<String, Map<String, byte[]>> group : jsonGroups.entrySet()) {
+				PendingWrite target = groupTargets.get(group.getKey());
+				client.setBatchBytes(target.DBIndex, group.getValue(), target.seconds);
+			}
+			for (Map.Entry<String, Map<String, Object>> group : classGroups.entrySet()) {
+				PendingWrite target = groupTargets.get(group.getKey());
+				client.setBatchObjects(target.DBIndex, group.getValue(), target.seconds);
+			}
+			written.add(done.size());
+		} catch (RuntimeException e) {
+			failed.add(done.size());
+			throw e;
+		} finally {
+			Map<Integer, List<String>> cancelledKeys = new HashMap<Integer, List<String>>();
+			for (Map.Entry<String, PendingWrite> entry : done.entrySet()) {
+				PendingWrite write = entry.getValue();
+				if (Boolean.TRUE.equals(inflight.remove(entry.getKey()))) {
+					List<String> dbKeys = cancelledKeys.get(write.DBIndex);
+					if (dbKeys == null) {
+						dbKeys = new ArrayList<String>();
+						cancelledKeys.put(write.DBIndex, dbKeys);
+					}
+					dbKeys.add(write.key);
+				}
+				removeWritten(entry.getKey(), write);
+			}
+			deleteCancelled(cancelledKeys);
+		}
+	}
+
+	/**
+	 * 写入期间被清除的key, 删掉刚写回的值
+	 */
+	private void deleteCancelled(Map<Integer, List<String>> cancelledKeys) {
+		for (Map.Entry<Integer, List<String>> entry : cancelledKeys.entrySet()) {
+			try {
+				client.delBatch(entry.getKey(), entry.getValue());
+			} catch (RuntimeException e) {
+				log.warn("Delete cancelled redis cache keys " + entry.getValue() + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 * 写入期间又提交了新值时, 保留新值并重新排队
+	 */
+	private void removeWritten(String pendingKey, PendingWrite write) {
+		if (!pending.remove(pendingKey, write) && pending.containsKey(pendingKey)) {
+			order.add(pendingKey);
+		}
+	}
+
+	public void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.taylor.redis:type=RedisCacheWriter,name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(this, objectName);
+			}
+		} catch (Exception e) {
+			log.warn("Register redis cache writer mbean " + name + " failed", e);
+		}
+	}
+
+	/**
+	 * 停止后台线程, 把剩余的值写完
+	 */
+	public void shutdown() {
+		running = false;
+		worker.interrupt();
+		List<String> keys = new ArrayList<String>();
+		order.drainTo(keys);
+		if (!keys.isEmpty()) {
+			write(keys);
+		}
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (Exception e) {
+				log.warn("Unregister redis cache writer mbean " + objectName + " failed", e);
+			}
+		}
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return pending.size();
+	}
+
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public long getWrittenCount() {
+		return written.sum();
+	}
+
+	@Override
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	@Override
+	public long getCancelledCount() {
+		return cancelled.sum();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.sum();
+	}
+}
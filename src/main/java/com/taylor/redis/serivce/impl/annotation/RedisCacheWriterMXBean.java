@@ -0,0 +1,33 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+/**
+ * 通过JMX暴露的异步缓存写入统计
+ */
+public interface RedisCacheWriterMXBean {
+
+	/**
+	 * 等待写入的key数
+	 */
+	int getQueueDepth();
+
+	int getCapacity();
+
+	long getWrittenCount();
+
+	/**
+	 * 同一个key未写入时被新值覆盖的次数
+	 */
+	long getCoalescedCount();
+
+	/**
+	 * 队列满时丢弃的次数
+	 */
+	long getDroppedCount();
+
+	/**
+	 * 清除缓存时丢弃的未写入值的次数
+	 */
+	long getCancelledCount();
+
+	long getFailedCount();
+}
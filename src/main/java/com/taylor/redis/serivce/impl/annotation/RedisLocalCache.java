@@ -0,0 +1,303 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内缓存, 条数和存活时间都有上限, 按W-TinyLFU淘汰:
+ * 新key先进窗口LRU(1%), 挤出窗口时和主区(分段LRU: 试用区20%, 保护区80%)的淘汰候选比较访问频率, 频率高的留下.
+ * 读只查ConcurrentHashMap, 调整LRU顺序和清理过期key时只tryLock, 抢不到锁就跳过, 读不会阻塞;
+ * 没清理掉的过期key只是不再返回, 等覆盖写入或被淘汰时移除.
+ */
+public class RedisLocalCache {
+
+	private static final int WINDOW = 0;
+
+	private static final int PROBATION = 1;
+
+	private static final int PROTECTED = 2;
+
+	private static class Node {
+
+		private final String key;
+
+		private final RedisCacheEntry entry;
+
+		private final long expireTime;
+
+		/* 所在的队列, 只在持有锁时读写 */
+		private int queue = WINDOW;
+
+		Node(String key, RedisCacheEntry entry, long expireTime) {
+			this.key = key;
+			this.entry = entry;
+			this.expireTime = expireTime;
+		}
+	}
+
+	private final int maxEntries;
+
+	private final long ttlMillis;
+
+	private final int windowMax;
+
+	private final int protectedMax;
+
+	private final ConcurrentMap<String, Node> data = new ConcurrentHashMap<String, Node>();
+
+	/* 三个队列按插入顺序即LRU顺序, 头部最久未访问 */
+	private final LinkedHashMap<String, Node> window = new LinkedHashMap<String, Node>();
+
+	private final LinkedHashMap<String, Node> probation = new LinkedHashMap<String, Node>();
+
+	private final LinkedHashMap<String, Node> protect = new LinkedHashMap<String, Node>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final FrequencySketch sketch;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	public RedisLocalCache(int maxEntries, long ttlMillis) {
+		this.maxEntries = Math.max(1, maxEntries);
+		this.ttlMillis = ttlMillis;
+		this.windowMax = Math.max(1, this.maxEntries / 100);
+		this.protectedMax = (this.maxEntries - windowMax) * 8 / 10;
+		this.sketch = new FrequencySketch(this.maxEntries);
+	}
+
+	/**
+	 * @return 没有或已过期时返回null
+	 */
+	public RedisCacheEntry get(String key) {
+		Node node = data.get(key);
+		sketch.increment(key);
+		if (node == null) {
+			misses.increment();
+			return null;
+		}
+		if (System.currentTimeMillis() >= node.expireTime) {
+			if (lock.tryLock()) {
+				try {
+					if (data.remove(key, node)) {
+						unlink(node);
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		if (lock.tryLock()) {
+			try {
+				onAccess(node);
+			} finally {
+				lock.unlock();
+			}
+		}
+		return node.entry;
+	}
+
+	public void put(String key, RedisCacheEntry entry) {
+		Node node = new Node(key, entry, System.currentTimeMillis() + ttlMillis);
+		lock.lock();
+		try {
+			Node old = data.put(key, node);
+			if (old != null) {
+				unlink(old);
+			}
+			window.put(key, node);
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void invalidate(String key) {
+		lock.lock();
+		try {
+			Node old = data.remove(key);
+			if (old != null) {
+				unlink(old);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void invalidatePrefix(String prefix) {
+		lock.lock();
+		try {
+			Iterator<Node> iterator = data.values().iterator();
+			while (iterator.hasNext()) {
+				Node node = iterator.next();
+				if (node.key.startsWith(prefix)) {
+					iterator.remove();
+					unlink(node);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void clear() {
+		lock.lock();
+		try {
+			data.clear();
+			window.clear();
+			probation.clear();
+			protect.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		return data.size();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	private void onAccess(Node node) {
+		if (data.get(node.key) != node) {
+			return;
+		}
+		if (node.queue == PROBATION) {
+			// 试用区再次访问, 升入保护区, 保护区满时把最久未访问的降回试用区
+			probation.remove(node.key);
+			node.queue = PROTECTED;
+			protect.put(node.key, node);
+			if (protect.size() > protectedMax) {
+				Node demoted = removeHead(protect);
+				demoted.queue = PROBATION;
+				probation.put(demoted.key, demoted);
+			}
+		} else {
+			LinkedHashMap<String, Node> queue = queueOf(node);
+			queue.remove(node.key);
+			queue.put(node.key, node);
+		}
+	}
+
+	private void evict() {
+		while (window.size() > windowMax) {
+			Node candidate = removeHead(window);
+			candidate.queue = PROBATION;
+			if (probation.size() + protect.size() < maxEntries - windowMax) {
+				probation.put(candidate.key, candidate);
+				continue;
+			}
+			if (probation.isEmpty() && protect.isEmpty()) {
+				data.remove(candidate.key, candidate);
+				continue;
+			}
+			Node victim = (probation.isEmpty() ? protect : probation).values().iterator().next();
+			if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+				unlink(victim);
+				data.remove(victim.key, victim);
+				probation.put(candidate.key, candidate);
+			} else {
+				data.remove(candidate.key, candidate);
+			}
+		}
+	}
+
+	private void unlink(Node node) {
+		queueOf(node).remove(node.key);
+	}
+
+	private LinkedHashMap<String, Node> queueOf(Node node) {
+		return node.queue == WINDOW ? window : (node.queue == PROBATION ? probation : protect);
+	}
+
+	private static Node removeHead(LinkedHashMap<String, Node> queue) {
+		Iterator<Node> iterator = queue.values().iterator();
+		Node head = iterator.next();
+		iterator.remove();
+		return head;
+	}
+
+	/**
+	 * 4行计数表估计访问频率, 每个计数最多15, 累计增加到10倍容量后全部减半, 旧的热度逐渐衰减.
+	 * 计数是近似值: 读路径不加锁地累加, 并发时会丢失少量计数, 减半也可能与累加交错或多做一次.
+	 * 只影响淘汰时比较频率的准确度, 不影响缓存内容的正确性.
+	 */
+	private static class FrequencySketch {
+
+		private static final int DEPTH = 4;
+
+		private static final int MAX_COUNT = 15;
+
+		private final int[] counters;
+
+		private final int mask;
+
+		private final int sampleSize;
+
+		private int additions;
+
+		FrequencySketch(int maxEntries) {
+			int width = Integer.highestOneBit(Math.max(16, maxEntries) - 1) << 1;
+			this.counters = new int[DEPTH * width];
+			this.mask = width - 1;
+			this.sampleSize = 10 * maxEntries;
+		}
+
+		void increment(String key) {
+			int h1 = mix(key.hashCode());
+			int h2 = mix(h1 ^ 0x5bd1e995);
+			boolean added = false;
+			for (int i = 0; i < DEPTH; i++) {
+				int index = i * (mask + 1) + ((h1 + i * h2) & mask);
+				if (counters[index] < MAX_COUNT) {
+					counters[index]++;
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				reset();
+			}
+		}
+
+		int frequency(String key) {
+			int h1 = mix(key.hashCode());
+			int h2 = mix(h1 ^ 0x5bd1e995);
+			int frequency = MAX_COUNT;
+			for (int i = 0; i < DEPTH; i++) {
+				frequency = Math.min(frequency, counters[i * (mask + 1) + ((h1 + i * h2) & mask)]);
+			}
+			return frequency;
+		}
+
+		private void reset() {
+			additions = 0;
+			for (int i = 0; i < counters.length; i++) {
+				counters[i] >>>= 1;
+			}
+		}
+
+		private static int mix(int h) {
+			h ^= h >>> 16;
+			h *= 0x85ebca6b;
+			h ^= h >>> 13;
+			h *= 0xc2b2ae35;
+			h ^= h >>> 16;
+			return h;
+		}
+	}
+}
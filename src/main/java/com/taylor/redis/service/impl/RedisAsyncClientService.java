@@ -0,0 +1,241 @@
+package com.taylor.redis.service.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * RedisClientService常用命令的异步版本, 返回的future在IO线程上完成, 调用方不必为每个请求占用一个线程.
+ * 不带DBIndex的方法使用0号库.
+ */
+public interface RedisAsyncClientService {
+
+	CompletableFuture<String> getAsync(String key);
+
+	CompletableFuture<String> getAsync(int DBIndex, String key);
+
+	CompletableFuture<String> setAsync(String key, String value);
+
+	CompletableFuture<String> setAsync(int DBIndex, String key, String value);
+
+	CompletableFuture<String> setexAsync(String key, int seconds, String value);
+
+	CompletableFuture<String> setexAsync(int DBIndex, String key, int seconds, String value);
+
+	CompletableFuture<Long> setnxAsync(String key, String value);
+
+	CompletableFuture<Long> setnxAsync(int DBIndex, String key, String value);
+
+	CompletableFuture<String> getSetAsync(String key, String value);
+
+	CompletableFuture<String> getSetAsync(int DBIndex, String key, String value);
+
+	CompletableFuture<Boolean> existsAsync(String key);
+
+	CompletableFuture<Boolean> existsAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> delAsync(String key);
+
+	CompletableFuture<Long> delAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> expireAsync(String key, int seconds);
+
+	CompletableFuture<Long> expireAsync(int DBIndex, String key, int seconds);
+
+	CompletableFuture<Long> ttlAsync(String key);
+
+	CompletableFuture<Long> ttlAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> incrAsync(String key);
+
+	CompletableFuture<Long> incrAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> incrByAsync(String key, long integer);
+
+	CompletableFuture<Long> incrByAsync(int DBIndex, String key, long integer);
+
+	CompletableFuture<Long> decrAsync(String key);
+
+	CompletableFuture<Long> decrAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> decrByAsync(String key, long integer);
+
+	CompletableFuture<Long> decrByAsync(int DBIndex, String key, long integer);
+
+	CompletableFuture<Long> hsetAsync(String key, String field, String value);
+
+	CompletableFuture<Long> hsetAsync(int DBIndex, String key, String field, String value);
+
+	CompletableFuture<String> hgetAsync(String key, String field);
+
+	CompletableFuture<String> hgetAsync(int DBIndex, String key, String field);
+
+	CompletableFuture<List<String>> hmgetAsync(String key, String... fields);
+
+	CompletableFuture<List<String>> hmgetAsync(int DBIndex, String key, String... fields);
+
+	CompletableFuture<String> hmsetAsync(String key, Map<String, String> hash);
+
+	CompletableFuture<String> hmsetAsync(int DBIndex, String key, Map<String, String> hash);
+
+	CompletableFuture<Long> hincrByAsync(String key, String field, long value);
+
+	CompletableFuture<Long> hincrByAsync(int DBIndex, String key, String field, long value);
+
+	CompletableFuture<Boolean> hexistsAsync(String key, String field);
+
+	CompletableFuture<Boolean> hexistsAsync(int DBIndex, String key, String field);
+
+	CompletableFuture<Long> hdelAsync(String key, String... fields);
+
+	CompletableFuture<Long> hdelAsync(int DBIndex, String key, String... fields);
+
+	CompletableFuture<Long> hlenAsync(String key);
+
+	CompletableFuture<Long> hlenAsync(int DBIndex, String key);
+
+	CompletableFuture<Map<String, String>> hgetAllAsync(String key);
+
+	CompletableFuture<Map<String, String>> hgetAllAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> lpushAsync(String key, String... strings);
+
+	CompletableFuture<Long> lpushAsync(int DBIndex, String key, String... strings);
+
+	CompletableFuture<Long> rpushAsync(String key, String... strings);
+
+	CompletableFuture<Long> rpushAsync(int DBIndex, String key, String... strings);
+
+	CompletableFuture<String> lpopAsync(String key);
+
+	CompletableFuture<String> lpopAsync(int DBIndex, String key);
+
+	CompletableFuture<String> rpopAsync(String key);
+
+	CompletableFuture<String> rpopAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> llenAsync(String key);
+
+	CompletableFuture<Long> llenAsync(int DBIndex, String key);
+
+	CompletableFuture<List<String>> lrangeAsync(String key, long start, long end);
+
+	CompletableFuture<List<String>> lrangeAsync(int DBIndex, String key, long start, long end);
+
+	CompletableFuture<Long> saddAsync(String key, String... members);
+
+	CompletableFuture<Long> saddAsync(int DBIndex, String key, String... members);
+
+	CompletableFuture<Long> sremAsync(String key, String... members);
+
+	CompletableFuture<Long> sremAsync(int DBIndex, String key, String... members);
+
+	CompletableFuture<Set<String>> smembersAsync(String key);
+
+	CompletableFuture<Set<String>> smembersAsync(int DBIndex, String key);
+
+	CompletableFuture<Boolean> sismemberAsync(String key, String member);
+
+	CompletableFuture<Boolean> sismemberAsync(int DBIndex, String key, String member);
+
+	CompletableFuture<Long> scardAsync(String key);
+
+	CompletableFuture<Long> scardAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> zaddAsync(String key, double score, String member);
+
+	CompletableFuture<Long> zaddAsync(int DBIndex, String key, double score, String member);
+
+	CompletableFuture<Long> zremAsync(String key, String... members);
+
+	CompletableFuture<Long> zremAsync(int DBIndex, String key, String... members);
+
+	CompletableFuture<Double> zscoreAsync(String key, String member);
+
+	CompletableFuture<Double> zscoreAsync(int DBIndex, String key, String member);
+
+	CompletableFuture<Long> zcardAsync(String key);
+
+	CompletableFuture<Long> zcardAsync(int DBIndex, String key);
+
+	CompletableFuture<Set<String>> zrangeAsync(String key, long start, long end);
+
+	CompletableFuture<Set<String>> zrangeAsync(int DBIndex, String key, long start, long end);
+
+	CompletableFuture<Set<String>> zrevrangeAsync(String key, long start, long end);
+
+	CompletableFuture<Set<String>> zrevrangeAsync(int DBIndex, String key, long start, long end);
+
+	CompletableFuture<Set<String>> zrangeByScoreAsync(String key, double min, double max);
+
+	CompletableFuture<Set<String>> zrangeByScoreAsync(int DBIndex, String key, double min, double max);
+
+	CompletableFuture<String> typeAsync(String key);
+
+	CompletableFuture<String> typeAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> expireAtAsync(String key, long unixTime);
+
+	CompletableFuture<Long> expireAtAsync(int DBIndex, String key, long unixTime);
+
+	CompletableFuture<Long> persistAsync(String key);
+
+	CompletableFuture<Long> persistAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> appendAsync(String key, String value);
+
+	CompletableFuture<Long> appendAsync(int DBIndex, String key, String value);
+
+	CompletableFuture<Long> strlenAsync(String key);
+
+	CompletableFuture<Long> strlenAsync(int DBIndex, String key);
+
+	CompletableFuture<Long> hsetnxAsync(String key, String field, String value);
+
+	CompletableFuture<Long> hsetnxAsync(int DBIndex, String key, String field, String value);
+
+	CompletableFuture<Set<String>> hkeysAsync(String key);
+
+	CompletableFuture<Set<String>> hkeysAsync(int DBIndex, String key);
+
+	CompletableFuture<List<String>> hvalsAsync(String key);
+
+	CompletableFuture<List<String>> hvalsAsync(int DBIndex, String key);
+
+	CompletableFuture<String> lindexAsync(String key, long index);
+
+	CompletableFuture<String> lindexAsync(int DBIndex, String key, long index);
+
+	CompletableFuture<String> ltrimAsync(String key, long start, long end);
+
+	CompletableFuture<String> ltrimAsync(int DBIndex, String key, long start, long end);
+
+	CompletableFuture<String> spopAsync(String key);
+
+	CompletableFuture<String> spopAsync(int DBIndex, String key);
+
+	CompletableFuture<String> srandmemberAsync(String key);
+
+	CompletableFuture<String> srandmemberAsync(int DBIndex, String key);
+
+	CompletableFuture<Double> zincrbyAsync(String key, double score, String member);
+
+	CompletableFuture<Double> zincrbyAsync(int DBIndex, String key, double score, String member);
+
+	CompletableFuture<Long> zrankAsync(String key, String member);
+
+	CompletableFuture<Long> zrankAsync(int DBIndex, String key, String member);
+
+	CompletableFuture<Long> zrevrankAsync(String key, String member);
+
+	CompletableFuture<Long> zrevrankAsync(int DBIndex, String key, String member);
+
+	CompletableFuture<Long> zcountAsync(String key, double min, double max);
+
+	CompletableFuture<Long> zcountAsync(int DBIndex, String key, double min, double max);
+
+	CompletableFuture<Set<String>> zrevrangeByScoreAsync(String key, double max, double min);
+
+	CompletableFuture<Set<String>> zrevrangeByScoreAsync(int DBIndex, String key, double max, double min);
+}
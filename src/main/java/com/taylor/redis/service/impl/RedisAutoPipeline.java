@@ -0,0 +1,341 @@
+package com.taylor.redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.taylor.common.exceptions.CommonRuntimeException;
+import com.taylor.redis.common.client.JedisCallBack;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 自动合并管道: 短时间窗口内并发提交的单key命令合并成一次Pipeline发送, 每个调用方各自拿回自己的结果.
+ * 不需要额外线程, 第一个发现没有在刷新的调用方负责等待窗口并刷新, 其余调用方等待结果.
+ * 刷新的调用方自己的命令完成后就交出刷新权, 唤醒队首命令的调用方接替, 每个调用方最多替排在它前面的命令刷新.
+ */
+@Log4j2
+public class RedisAutoPipeline {
+
+	/* 不指定库的命令, 走不带SELECT的连接 */
+	public static final int DEFAULT_DB = -1;
+
+	public interface PipelineCallBack<E> {
+
+		Response<E> doBiz(Pipeline p);
+
+		String getOperationName();
+	}
+
+	private static class PendingCommand<E> {
+
+		private final PipelineCallBack<E> callback;
+
+		private final CompletableFuture<E> future = new CompletableFuture<E>();
+
+		/* 提交命令的调用方, 命令完成或轮到它接替刷新时唤醒 */
+		private final Thread waiter = Thread.currentThread();
+
+		/* 提交时的System.nanoTime(), 完成时按命令名统计耗时(含等待合并的时间) */
+		private final long submitTime = System.nanoTime();
+
+		private Response<E> response;
+
+		private PendingCommand(PipelineCallBack<E> callback) {
+			this.callback = callback;
+		}
+	}
+
+	private static class DBQueue {
+
+		private final Queue<PendingCommand<?>> commands = new ConcurrentLinkedQueue<PendingCommand<?>>();
+
+		private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+		/* 排队的命令数, 只有自己在排队时不等待合并窗口 */
+		private final AtomicInteger size = new AtomicInteger();
+	}
+
+	private final RedisSimpleClient client;
+
+	/* 合并窗口, 微秒 */
+	private final long windowMicros;
+
+	/* 单次管道最多合并的命令数 */
+	private final int maxBatch;
+
+	private final ConcurrentMap<Integer, DBQueue> queues = new ConcurrentHashMap<Integer, DBQueue>();
+
+	public RedisAutoPipeline(RedisSimpleClient client, long windowMicros, int maxBatch) {
+		this.client = client;
+		this.windowMicros = windowMicros;
+		this.maxBatch = maxBatch;
+	}
+
+	public String get(int DBIndex, final String key) {
+		byte[] value = getBytes(DBIndex, key);
+		return null == value ? null : SafeEncoder.encode(value);
+	}
+
+	public byte[] getBytes(int DBIndex, final String key) {
+		/* 在调用方线程解压 */
+		return client.decodeBytes(submit(DBIndex, key, new PipelineCallBack<byte[]>() {
+
+			public Response<byte[]> doBiz(Pipeline p) {
+				return p.get(SafeEncoder.encode(key));
+			}
+
+			public String getOperationName() {
+				return "get";
+			}
+		}));
+	}
+
+	public String set(int DBIndex, final String key, String value) {
+		final byte[] encoded = client.encodeValue(value);
+		return submit(DBIndex, key, new PipelineCallBack<String>() {
+
+			public Response<String> doBiz(Pipeline p) {
+				return p.set(SafeEncoder.encode(key), encoded);
+			}
+
+			public String getOperationName() {
+				return "set";
+			}
+		});
+	}
+
+	public String setex(int DBIndex, final String key, final int seconds, String value) {
+		final byte[] encoded = client.encodeValue(value);
+		return submit(DBIndex, key, new PipelineCallBack<String>() {
+
+			public Response<String> doBiz(Pipeline p) {
+				return p.setex(SafeEncoder.encode(key), seconds, encoded);
+			}
+
+			public String getOperationName() {
+				return "setex";
+			}
+		});
+	}
+
+	public String setBytes(int DBIndex, final String key, final int seconds, byte[] value) {
+		final byte[] encoded = client.encodeBytes(value);
+		return submit(DBIndex, key, new PipelineCallBack<String>() {
+
+			public Response<String> doBiz(Pipeline p) {
+				if (seconds > 0) {
+					return p.setex(SafeEncoder.encode(key), seconds, encoded);
+				}
+				return p.set(SafeEncoder.encode(key), encoded);
+			}
+
+			public String getOperationName() {
+				return seconds > 0 ? "setex" : "set";
+			}
+		});
+	}
+
+	public Boolean exists(int DBIndex, final String key) {
+		return submit(DBIndex, key, new PipelineCallBack<Boolean>() {
+
+			public Response<Boolean> doBiz(Pipeline p) {
+				return p.exists(key);
+			}
+
+			public String getOperationName() {
+				return "exists";
+			}
+		});
+	}
+
+	public Long del(int DBIndex, final String key) {
+		return submit(DBIndex, key, new PipelineCallBack<Long>() {
+
+			public Response<Long> doBiz(Pipeline p) {
+				return p.del(key);
+			}
+
+			public String getOperationName() {
+				return "del";
+			}
+		});
+	}
+
+	public Long incr(int DBIndex, final String key) {
+		return submit(DBIndex, key, new PipelineCallBack<Long>() {
+
+			public Response<Long> doBiz(Pipeline p) {
+				return p.incr(key);
+			}
+
+			public String getOperationName() {
+				return "incr";
+			}
+		});
+	}
+
+	public String hget(int DBIndex, final String key, final String field) {
+		return submit(DBIndex, key, new PipelineCallBack<String>() {
+
+			public Response<String> doBiz(Pipeline p) {
+				return p.hget(key, field);
+			}
+
+			public String getOperationName() {
+				return "hget";
+			}
+		});
+	}
+
+	public Long hset(int DBIndex, final String key, final String field, final String value) {
+		return submit(DBIndex, key, new PipelineCallBack<Long>() {
+
+			public Response<Long> doBiz(Pipeline p) {
+				return p.hset(key, field, value);
+			}
+
+			public String getOperationName() {
+				return "hset";
+			}
+		});
+	}
+
+	public <E> E submit(int DBIndex, String key, PipelineCallBack<E> callback) {
+		DBQueue queue = queues.get(DBIndex);
+		if (queue == null) {
+			queues.putIfAbsent(DBIndex, new DBQueue());
+			queue = queues.get(DBIndex);
+		}
+		client.recordHotKey(DBIndex, key, callback.getOperationName());
+		PendingCommand<E> command = new PendingCommand<E>(callback);
+		queue.commands.add(command);
+		queue.size.incrementAndGet();
+		/* 自己的命令还在队列中且没有人在刷新时抢刷新权; 等待时不响应中断, 命令完成后再恢复中断标记 */
+		boolean interrupted = false;
+		while (!command.future.isDone()) {
+			if (!queue.flushing.get() && queue.flushing.compareAndSet(false, true)) {
+				try {
+					if (windowMicros > 0 && queue.size.get() > 1) {
+						LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(windowMicros));
+					}
+					while (!command.future.isDone() && !queue.commands.isEmpty()) {
+						flush(DBIndex, queue);
+					}
+				} finally {
+					queue.flushing.set(false);
+				}
+				PendingCommand<?> next = queue.commands.peek();
+				if (next != null) {
+					LockSupport.unpark(next.waiter);
+				}
+			} else {
+				LockSupport.park(this);
+				if (Thread.interrupted()) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			return command.future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new CommonRuntimeException("Do operation failed for key :=" + key, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CommonRuntimeException("Do operation interrupted for key :=" + key, e);
+		}
+	}
+
+	private void flush(int DBIndex, DBQueue queue) {
+		final List<PendingCommand<?>> batch = new ArrayList<PendingCommand<?>>();
+		PendingCommand<?> command;
+		while (batch.size() < maxBatch && (command = queue.commands.poll()) != null) {
+			queue.size.decrementAndGet();
+			batch.add(command);
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		JedisCallBack<Integer> callback = new JedisCallBack<Integer>() {
+
+			public Integer doBiz(Jedis j) {
+				Pipeline p = j.pipelined();
+				for (PendingCommand<?> pending : batch) {
+					append(p, pending);
+				}
+				p.sync();
+				return batch.size();
+			}
+
+			public String getOperationName() {
+				return "autoPipeline";
+			}
+		};
+		try {
+			if (DBIndex == DEFAULT_DB) {
+				client.doOperation(RedisSimpleClient.BATCH_KEY, callback);
+			} else {
+				client.doOperation(DBIndex, RedisSimpleClient.BATCH_KEY, callback);
+			}
+		} catch (RuntimeException e) {
+			log.error("Auto pipeline flush failed, batch size " + batch.size(), e);
+			for (PendingCommand<?> pending : batch) {
+				pending.future.completeExceptionally(e);
+				LockSupport.unpark(pending.waiter);
+			}
+			record(batch);
+			return;
+		}
+		for (PendingCommand<?> pending : batch) {
+			complete(pending);
+			LockSupport.unpark(pending.waiter);
+		}
+		record(batch);
+	}
+
+	/**
+	 * 整批的耗时记在autoPipeline下, 这里再按命令名记录每个调用方的耗时
+	 */
+	private void record(List<PendingCommand<?>> batch) {
+		RedisMetrics metrics = client.getMetrics();
+		if (null == metrics) {
+			return;
+		}
+		long now = System.nanoTime();
+		for (PendingCommand<?> pending : batch) {
+			metrics.recordCommand(pending.callback.getOperationName(), now - pending.submitTime);
+		}
+	}
+
+	private static <E> void append(Pipeline p, PendingCommand<E> pending) {
+		pending.response = pending.callback.doBiz(p);
+	}
+
+	private static <E> void complete(PendingCommand<E> pending) {
+		try {
+			pending.future.complete(pending.response.get());
+		} catch (RuntimeException e) {
+			pending.future.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.taylor.redis.service.impl;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * 单个逻辑库的连接池, 连接由RedisJedisFactory创建, 借出时已在对应库上.
+ * 借出的连接可以直接close()归还, 损坏的连接会被销毁.
+ */
+public class RedisDBPool extends Pool<Jedis> {
+
+	public RedisDBPool(GenericObjectPoolConfig poolConfig, RedisJedisFactory factory) {
+		super(poolConfig, factory);
+	}
+
+	@Override
+	public Jedis getResource() {
+		Jedis jedis = super.getResource();
+		jedis.setDataSource(this);
+		return jedis;
+	}
+
+	@Override
+	public void returnResource(Jedis resource) {
+		if (resource != null) {
+			try {
+				resource.resetState();
+				returnResourceObject(resource);
+			} catch (Exception e) {
+				returnBrokenResource(resource);
+				throw new JedisException("Could not return the resource to the pool", e);
+			}
+		}
+	}
+
+	@Override
+	public void returnBrokenResource(Jedis resource) {
+		if (resource != null) {
+			returnBrokenResourceObject(resource);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.taylor.redis.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import com.taylor.redis.common.client.RedisSimpleClientInfo;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+/**
+ * 按逻辑库(DBIndex)划分的连接池, 每个库一个池, 首次使用时创建.
+ * 池中的连接在建立时就已经SELECT到对应的库, 借出后无需再发SELECT.
+ */
+@Log4j2
+public class RedisDBPools {
+
+	private final ConcurrentMap<Integer, Pool<Jedis>> pools = new ConcurrentHashMap<Integer, Pool<Jedis>>();
+
+	private final RedisSimpleClientInfo redisClientInfo;
+
+	private final GenericObjectPoolConfig poolConfig;
+
+	private final int timeout;
+
+	private final String password;
+
+	/* 连接最后一次确认可用后超过该时长才在借出时重新校验 */
+	private final long validateIdleMillis;
+
+	/* 单独指定大小的库, <DBIndex, maxActive> */
+	private final Map<Integer, Integer> poolSizes;
+
+	public RedisDBPools(RedisSimpleClientInfo redisClientInfo, GenericObjectPoolConfig poolConfig, int timeout, String password, long validateIdleMillis, Map<Integer, Integer> poolSizes) {
+		this.redisClientInfo = redisClientInfo;
+		this.poolConfig = poolConfig;
+		this.timeout = timeout;
+		this.password = password;
+		this.validateIdleMillis = validateIdleMillis;
+		this.poolSizes = poolSizes;
+	}
+
+	public Pool<Jedis> getPool(int DBIndex) {
+		Pool<Jedis> pool = pools.get(DBIndex);
+		if (pool != null) {
+			return pool;
+		}
+		Pool<Jedis> created = createPool(DBIndex);
+		pool = pools.putIfAbsent(DBIndex, created);
+		if (pool != null) {
+			/* 并发创建时只保留先放进去的池 */
+			created.destroy();
+			return pool;
+		}
+		log.info("Create redis pool for DB " + DBIndex);
+		return created;
+	}
+
+	private Pool<Jedis> createPool(int DBIndex) {
+		GenericObjectPoolConfig config = poolConfig.clone();
+		if (poolSizes != null && poolSizes.get(DBIndex) != null) {
+			config.setMaxTotal(poolSizes.get(DBIndex));
+		}
+		return new RedisDBPool(config, new RedisJedisFactory(redisClientInfo.getHost(), redisClientInfo.getPort(), timeout, password, DBIndex, validateIdleMillis));
+	}
+
+	public void destoryAllResources() {
+		for (Pool<Jedis> pool : pools.values()) {
+			pool.destroy();
+		}
+		pools.clear();
+	}
+}
@@ -0,0 +1,121 @@
+package com.taylor.redis.service.impl;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 连接池中Jedis的创建与校验.
+ * 每个连接记录最后一次确认可用的时间, 校验时只有空闲超过validateIdleMillis的连接才发PING,
+ * 出错的连接由Jedis.close()归还为broken并直接销毁.
+ */
+public class RedisJedisFactory implements PooledObjectFactory<Jedis> {
+
+	private final String host;
+
+	private final int port;
+
+	private final int timeout;
+
+	private final String password;
+
+	private final int database;
+
+	/* 小于等于0时每次校验都PING */
+	private final long validateIdleMillis;
+
+	public RedisJedisFactory(String host, int port, int timeout, String password, int database, long validateIdleMillis) {
+		this.host = host;
+		this.port = port;
+		this.timeout = timeout;
+		this.password = password;
+		this.database = database;
+		this.validateIdleMillis = validateIdleMillis;
+	}
+
+	static class RedisPooledJedis extends DefaultPooledObject<Jedis> {
+
+		/* 最后一次确认连接可用的时间 */
+		private volatile long lastGoodTime = System.currentTimeMillis();
+
+		RedisPooledJedis(Jedis jedis) {
+			super(jedis);
+		}
+
+		long getLastGoodTime() {
+			return lastGoodTime;
+		}
+
+		void markGood() {
+			lastGoodTime = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public PooledObject<Jedis> makeObject() throws Exception {
+		Jedis jedis = new Jedis(host, port, timeout, timeout);
+		try {
+			jedis.connect();
+			if (password != null) {
+				jedis.auth(password);
+			}
+			if (database != 0) {
+				jedis.select(database);
+			}
+		} catch (Exception e) {
+			jedis.close();
+			throw e;
+		}
+		return new RedisPooledJedis(jedis);
+	}
+
+	@Override
+	public void destroyObject(PooledObject<Jedis> pooledJedis) throws Exception {
+		Jedis jedis = pooledJedis.getObject();
+		if (jedis.isConnected()) {
+			try {
+				jedis.quit();
+			} catch (Exception e) {
+				// ignore
+			}
+			jedis.disconnect();
+		}
+	}
+
+	@Override
+	public boolean validateObject(PooledObject<Jedis> pooledJedis) {
+		Jedis jedis = pooledJedis.getObject();
+		if (!jedis.isConnected()) {
+			return false;
+		}
+		RedisPooledJedis pooled = (RedisPooledJedis) pooledJedis;
+		if (validateIdleMillis > 0 && System.currentTimeMillis() - pooled.getLastGoodTime() < validateIdleMillis) {
+			return true;
+		}
+		try {
+			boolean good = "PONG".equals(jedis.ping());
+			if (good) {
+				pooled.markGood();
+			}
+			return good;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void activateObject(PooledObject<Jedis> pooledJedis) throws Exception {
+		Jedis jedis = pooledJedis.getObject();
+		if (jedis.getDB() != database) {
+			jedis.select(database);
+		}
+	}
+
+	@Override
+	public void passivateObject(PooledObject<Jedis> pooledJedis) throws Exception {
+		/* 正常归还说明最后一条命令成功, 连接可用 */
+		((RedisPooledJedis) pooledJedis).markGood();
+	}
+}
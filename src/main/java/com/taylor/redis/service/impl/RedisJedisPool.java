@@ -0,0 +1,17 @@
+package com.taylor.redis.service.impl;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 连接由RedisJedisFactory创建的JedisPool, 供分片, 从节点和切换后的主节点使用.
+ * JedisPool的构造方法都会创建自带的工厂, 这里先建一个不连接的默认池, 再换成RedisJedisFactory.
+ */
+public class RedisJedisPool extends JedisPool {
+
+	public RedisJedisPool(GenericObjectPoolConfig poolConfig, RedisJedisFactory factory) {
+		super();
+		initPool(poolConfig, factory);
+	}
+}
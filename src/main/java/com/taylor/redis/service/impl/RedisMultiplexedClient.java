@@ -0,0 +1,1251 @@
+package com.taylor.redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import com.taylor.common.exceptions.CommonRuntimeException;
+import com.taylor.redis.common.shard.RedisSimplePool;
+import com.taylor.redis.exception.RedisShardConnectException;
+import com.taylor.redis.service.impl.netty.RedisPipelineTransport;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 走多路复用长连接的RedisSimpleClient: 常用命令不再独占池中的连接, 其余命令仍走父类的连接池.
+ * 常用命令同时提供异步版本, 同步方法就是等待异步结果.
+ * 不带DBIndex的方法使用0号库.
+ */
+public class RedisMultiplexedClient extends RedisSimpleClient implements RedisAsyncClientService {
+
+	private static final Function<Object, String> STRING = new Function<Object, String>() {
+
+		public String apply(Object reply) {
+			return asString(reply);
+		}
+	};
+
+	private static final Function<Object, Long> LONG = new Function<Object, Long>() {
+
+		public Long apply(Object reply) {
+			return asLong(reply);
+		}
+	};
+
+	private static final Function<Object, Boolean> BOOLEAN = new Function<Object, Boolean>() {
+
+		public Boolean apply(Object reply) {
+			return asBoolean(reply);
+		}
+	};
+
+	private static final Function<Object, Double> DOUBLE = new Function<Object, Double>() {
+
+		public Double apply(Object reply) {
+			return asDouble(reply);
+		}
+	};
+
+	private static final Function<Object, List<String>> STRING_LIST = new Function<Object, List<String>>() {
+
+		public List<String> apply(Object reply) {
+			return asStringList(reply);
+		}
+	};
+
+	private static final Function<Object, Set<String>> STRING_SET = new Function<Object, Set<String>>() {
+
+		public Set<String> apply(Object reply) {
+			return asStringSet(reply);
+		}
+	};
+
+	private static final Function<Object, Map<String, String>> STRING_MAP = new Function<Object, Map<String, String>>() {
+
+		public Map<String, String> apply(Object reply) {
+			return asStringMap(reply);
+		}
+	};
+
+	/* GET的值在回调里透明解压 */
+	private final Function<Object, String> VALUE = new Function<Object, String>() {
+
+		public String apply(Object reply) {
+			return decodeValue((byte[]) reply);
+		}
+	};
+
+	private final RedisPipelineTransport transport;
+
+	public RedisMultiplexedClient(RedisSimplePool redisPool, RedisDBPools dbPools, RedisPipelineTransport transport) {
+		super(redisPool, dbPools);
+		this.transport = transport;
+	}
+
+	public RedisMultiplexedClient(Pool<Jedis> defaultPool, RedisDBPools dbPools, RedisPipelineTransport transport) {
+		super(defaultPool, dbPools);
+		this.transport = transport;
+	}
+
+	@Override
+	public String get(final String key) {
+		return await(key, getAsync(key));
+	}
+
+	public CompletableFuture<String> getAsync(String key) {
+		return transport.execute(0, Command.GET, b(key)).thenApply(VALUE);
+	}
+
+	@Override
+	public String get(final int DBIndex, final String key) {
+		return await(key, getAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<String> getAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.GET, b(key)).thenApply(VALUE);
+	}
+
+	@Override
+	public String set(final String key, final String value) {
+		return await(key, setAsync(key, value));
+	}
+
+	public CompletableFuture<String> setAsync(String key, String value) {
+		return transport.execute(0, Command.SET, b(key), encodeValue(value)).thenApply(STRING);
+	}
+
+	@Override
+	public String set(final int DBIndex, final String key, final String value) {
+		return await(key, setAsync(DBIndex, key, value));
+	}
+
+	public CompletableFuture<String> setAsync(int DBIndex, String key, String value) {
+		return transport.execute(DBIndex, Command.SET, b(key), encodeValue(value)).thenApply(STRING);
+	}
+
+	@Override
+	public String setex(final String key, final int seconds, final String value) {
+		return await(key, setexAsync(key, seconds, value));
+	}
+
+	public CompletableFuture<String> setexAsync(String key, int seconds, String value) {
+		return transport.execute(0, Command.SETEX, b(key), b(seconds), encodeValue(value)).thenApply(STRING);
+	}
+
+	@Override
+	public String setex(final int DBIndex, final String key, final int seconds, final String value) {
+		return await(key, setexAsync(DBIndex, key, seconds, value));
+	}
+
+	public CompletableFuture<String> setexAsync(int DBIndex, String key, int seconds, String value) {
+		return transport.execute(DBIndex, Command.SETEX, b(key), b(seconds), encodeValue(value)).thenApply(STRING);
+	}
+
+	@Override
+	public Long setnx(final String key, final String value) {
+		return await(key, setnxAsync(key, value));
+	}
+
+	public CompletableFuture<Long> setnxAsync(String key, String value) {
+		return transport.execute(0, Command.SETNX, b(key), encodeValue(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Long setnx(final int DBIndex, final String key, final String value) {
+		return await(key, setnxAsync(DBIndex, key, value));
+	}
+
+	public CompletableFuture<Long> setnxAsync(int DBIndex, String key, String value) {
+		return transport.execute(DBIndex, Command.SETNX, b(key), encodeValue(value)).thenApply(LONG);
+	}
+
+	@Override
+	public String getSet(final String key, final String value) {
+		return await(key, getSetAsync(key, value));
+	}
+
+	public CompletableFuture<String> getSetAsync(String key, String value) {
+		return transport.execute(0, Command.GETSET, b(key), encodeValue(value)).thenApply(VALUE);
+	}
+
+	@Override
+	public String getSet(final int DBIndex, final String key, final String value) {
+		return await(key, getSetAsync(DBIndex, key, value));
+	}
+
+	public CompletableFuture<String> getSetAsync(int DBIndex, String key, String value) {
+		return transport.execute(DBIndex, Command.GETSET, b(key), encodeValue(value)).thenApply(VALUE);
+	}
+
+	@Override
+	public Boolean exists(final String key) {
+		return await(key, existsAsync(key));
+	}
+
+	public CompletableFuture<Boolean> existsAsync(String key) {
+		return transport.execute(0, Command.EXISTS, b(key)).thenApply(BOOLEAN);
+	}
+
+	@Override
+	public Boolean exists(final int DBIndex, final String key) {
+		return await(key, existsAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Boolean> existsAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.EXISTS, b(key)).thenApply(BOOLEAN);
+	}
+
+	@Override
+	public Long del(final String key) {
+		return await(key, delAsync(key));
+	}
+
+	public CompletableFuture<Long> delAsync(String key) {
+		/* 默认库不区分库号 */
+		return transport.execute(0, Command.DEL, b(key)).thenApply(LONG).thenApply(invalidate(RedisAutoPipeline.DEFAULT_DB, key));
+	}
+
+	@Override
+	public Long del(final int DBIndex, final String key) {
+		return await(key, delAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> delAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.DEL, b(key)).thenApply(LONG).thenApply(invalidate(DBIndex, key));
+	}
+
+	/**
+	 * DEL成功返回后通知本地缓存失效, 同步的del也经过这里
+	 */
+	private Function<Long, Long> invalidate(final int DBIndex, final String key) {
+		return new Function<Long, Long>() {
+
+			public Long apply(Long deleted) {
+				publishInvalidation(DBIndex, key);
+				return deleted;
+			}
+		};
+	}
+
+	@Override
+	public Long expire(final String key, final int seconds) {
+		return await(key, expireAsync(key, seconds));
+	}
+
+	public CompletableFuture<Long> expireAsync(String key, int seconds) {
+		return transport.execute(0, Command.EXPIRE, b(key), b(seconds)).thenApply(LONG);
+	}
+
+	@Override
+	public Long expire(final int DBIndex, final String key, final int seconds) {
+		return await(key, expireAsync(DBIndex, key, seconds));
+	}
+
+	public CompletableFuture<Long> expireAsync(int DBIndex, String key, int seconds) {
+		return transport.execute(DBIndex, Command.EXPIRE, b(key), b(seconds)).thenApply(LONG);
+	}
+
+	@Override
+	public Long ttl(final String key) {
+		return await(key, ttlAsync(key));
+	}
+
+	public CompletableFuture<Long> ttlAsync(String key) {
+		return transport.execute(0, Command.TTL, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long ttl(final int DBIndex, final String key) {
+		return await(key, ttlAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> ttlAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.TTL, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long incr(final String key) {
+		return await(key, incrAsync(key));
+	}
+
+	public CompletableFuture<Long> incrAsync(String key) {
+		return transport.execute(0, Command.INCR, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long incr(final int DBIndex, final String key) {
+		return await(key, incrAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> incrAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.INCR, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long incrBy(final String key, final long integer) {
+		return await(key, incrByAsync(key, integer));
+	}
+
+	public CompletableFuture<Long> incrByAsync(String key, long integer) {
+		return transport.execute(0, Command.INCRBY, b(key), b(integer)).thenApply(LONG);
+	}
+
+	@Override
+	public Long incrBy(final int DBIndex, final String key, final long integer) {
+		return await(key, incrByAsync(DBIndex, key, integer));
+	}
+
+	public CompletableFuture<Long> incrByAsync(int DBIndex, String key, long integer) {
+		return transport.execute(DBIndex, Command.INCRBY, b(key), b(integer)).thenApply(LONG);
+	}
+
+	@Override
+	public Long decr(final String key) {
+		return await(key, decrAsync(key));
+	}
+
+	public CompletableFuture<Long> decrAsync(String key) {
+		return transport.execute(0, Command.DECR, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long decr(final int DBIndex, final String key) {
+		return await(key, decrAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> decrAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.DECR, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long decrBy(final String key, final long integer) {
+		return await(key, decrByAsync(key, integer));
+	}
+
+	public CompletableFuture<Long> decrByAsync(String key, long integer) {
+		return transport.execute(0, Command.DECRBY, b(key), b(integer)).thenApply(LONG);
+	}
+
+	@Override
+	public Long decrBy(final int DBIndex, final String key, final long integer) {
+		return await(key, decrByAsync(DBIndex, key, integer));
+	}
+
+	public CompletableFuture<Long> decrByAsync(int DBIndex, String key, long integer) {
+		return transport.execute(DBIndex, Command.DECRBY, b(key), b(integer)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hset(final String key, final String field, final String value) {
+		return await(key, hsetAsync(key, field, value));
+	}
+
+	public CompletableFuture<Long> hsetAsync(String key, String field, String value) {
+		return transport.execute(0, Command.HSET, b(key), b(field), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hset(final int DBIndex, final String key, final String field, final String value) {
+		return await(key, hsetAsync(DBIndex, key, field, value));
+	}
+
+	public CompletableFuture<Long> hsetAsync(int DBIndex, String key, String field, String value) {
+		return transport.execute(DBIndex, Command.HSET, b(key), b(field), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public String hget(final String key, final String field) {
+		return await(key, hgetAsync(key, field));
+	}
+
+	public CompletableFuture<String> hgetAsync(String key, String field) {
+		return transport.execute(0, Command.HGET, b(key), b(field)).thenApply(STRING);
+	}
+
+	@Override
+	public String hget(final int DBIndex, final String key, final String field) {
+		return await(key, hgetAsync(DBIndex, key, field));
+	}
+
+	public CompletableFuture<String> hgetAsync(int DBIndex, String key, String field) {
+		return transport.execute(DBIndex, Command.HGET, b(key), b(field)).thenApply(STRING);
+	}
+
+	@Override
+	public List<String> hmget(final String key, final String... fields) {
+		return await(key, hmgetAsync(key, fields));
+	}
+
+	public CompletableFuture<List<String>> hmgetAsync(String key, String... fields) {
+		return transport.execute(0, Command.HMGET, b(key, fields)).thenApply(STRING_LIST);
+	}
+
+	@Override
+	public List<String> hmget(final int DBIndex, final String key, final String... fields) {
+		return await(key, hmgetAsync(DBIndex, key, fields));
+	}
+
+	public CompletableFuture<List<String>> hmgetAsync(int DBIndex, String key, String... fields) {
+		return transport.execute(DBIndex, Command.HMGET, b(key, fields)).thenApply(STRING_LIST);
+	}
+
+	@Override
+	public String hmset(final String key, final Map<String, String> hash) {
+		return await(key, hmsetAsync(key, hash));
+	}
+
+	public CompletableFuture<String> hmsetAsync(String key, Map<String, String> hash) {
+		return transport.execute(0, Command.HMSET, b(key, hash)).thenApply(STRING);
+	}
+
+	@Override
+	public String hmset(final int DBIndex, final String key, final Map<String, String> hash) {
+		return await(key, hmsetAsync(DBIndex, key, hash));
+	}
+
+	public CompletableFuture<String> hmsetAsync(int DBIndex, String key, Map<String, String> hash) {
+		return transport.execute(DBIndex, Command.HMSET, b(key, hash)).thenApply(STRING);
+	}
+
+	@Override
+	public Long hincrBy(final String key, final String field, final long value) {
+		return await(key, hincrByAsync(key, field, value));
+	}
+
+	public CompletableFuture<Long> hincrByAsync(String key, String field, long value) {
+		return transport.execute(0, Command.HINCRBY, b(key), b(field), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hincrBy(final int DBIndex, final String key, final String field, final long value) {
+		return await(key, hincrByAsync(DBIndex, key, field, value));
+	}
+
+	public CompletableFuture<Long> hincrByAsync(int DBIndex, String key, String field, long value) {
+		return transport.execute(DBIndex, Command.HINCRBY, b(key), b(field), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Boolean hexists(final String key, final String field) {
+		return await(key, hexistsAsync(key, field));
+	}
+
+	public CompletableFuture<Boolean> hexistsAsync(String key, String field) {
+		return transport.execute(0, Command.HEXISTS, b(key), b(field)).thenApply(BOOLEAN);
+	}
+
+	@Override
+	public Boolean hexists(final int DBIndex, final String key, final String field) {
+		return await(key, hexistsAsync(DBIndex, key, field));
+	}
+
+	public CompletableFuture<Boolean> hexistsAsync(int DBIndex, String key, String field) {
+		return transport.execute(DBIndex, Command.HEXISTS, b(key), b(field)).thenApply(BOOLEAN);
+	}
+
+	@Override
+	public Long hdel(final String key, final String... fields) {
+		return await(key, hdelAsync(key, fields));
+	}
+
+	public CompletableFuture<Long> hdelAsync(String key, String... fields) {
+		return transport.execute(0, Command.HDEL, b(key, fields)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hdel(final int DBIndex, final String key, final String... fields) {
+		return await(key, hdelAsync(DBIndex, key, fields));
+	}
+
+	public CompletableFuture<Long> hdelAsync(int DBIndex, String key, String... fields) {
+		return transport.execute(DBIndex, Command.HDEL, b(key, fields)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hlen(final String key) {
+		return await(key, hlenAsync(key));
+	}
+
+	public CompletableFuture<Long> hlenAsync(String key) {
+		return transport.execute(0, Command.HLEN, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hlen(final int DBIndex, final String key) {
+		return await(key, hlenAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> hlenAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.HLEN, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Map<String, String> hgetAll(final String key) {
+		return await(key, hgetAllAsync(key));
+	}
+
+	public CompletableFuture<Map<String, String>> hgetAllAsync(String key) {
+		return transport.execute(0, Command.HGETALL, b(key)).thenApply(STRING_MAP);
+	}
+
+	@Override
+	public Map<String, String> hgetAll(final int DBIndex, final String key) {
+		return await(key, hgetAllAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Map<String, String>> hgetAllAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.HGETALL, b(key)).thenApply(STRING_MAP);
+	}
+
+	@Override
+	public Long lpush(final String key, final String... strings) {
+		return await(key, lpushAsync(key, strings));
+	}
+
+	public CompletableFuture<Long> lpushAsync(String key, String... strings) {
+		return transport.execute(0, Command.LPUSH, b(key, strings)).thenApply(LONG);
+	}
+
+	@Override
+	public Long lpush(final int DBIndex, final String key, final String... strings) {
+		return await(key, lpushAsync(DBIndex, key, strings));
+	}
+
+	public CompletableFuture<Long> lpushAsync(int DBIndex, String key, String... strings) {
+		return transport.execute(DBIndex, Command.LPUSH, b(key, strings)).thenApply(LONG);
+	}
+
+	@Override
+	public Long rpush(final String key, final String... strings) {
+		return await(key, rpushAsync(key, strings));
+	}
+
+	public CompletableFuture<Long> rpushAsync(String key, String... strings) {
+		return transport.execute(0, Command.RPUSH, b(key, strings)).thenApply(LONG);
+	}
+
+	@Override
+	public Long rpush(final int DBIndex, final String key, final String... strings) {
+		return await(key, rpushAsync(DBIndex, key, strings));
+	}
+
+	public CompletableFuture<Long> rpushAsync(int DBIndex, String key, String... strings) {
+		return transport.execute(DBIndex, Command.RPUSH, b(key, strings)).thenApply(LONG);
+	}
+
+	@Override
+	public String lpop(final String key) {
+		return await(key, lpopAsync(key));
+	}
+
+	public CompletableFuture<String> lpopAsync(String key) {
+		return transport.execute(0, Command.LPOP, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String lpop(final int DBIndex, final String key) {
+		return await(key, lpopAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<String> lpopAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.LPOP, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String rpop(final String key) {
+		return await(key, rpopAsync(key));
+	}
+
+	public CompletableFuture<String> rpopAsync(String key) {
+		return transport.execute(0, Command.RPOP, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String rpop(final int DBIndex, final String key) {
+		return await(key, rpopAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<String> rpopAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.RPOP, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public Long llen(final String key) {
+		return await(key, llenAsync(key));
+	}
+
+	public CompletableFuture<Long> llenAsync(String key) {
+		return transport.execute(0, Command.LLEN, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long llen(final int DBIndex, final String key) {
+		return await(key, llenAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> llenAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.LLEN, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public List<String> lrange(final String key, final long start, final long end) {
+		return await(key, lrangeAsync(key, start, end));
+	}
+
+	public CompletableFuture<List<String>> lrangeAsync(String key, long start, long end) {
+		return transport.execute(0, Command.LRANGE, b(key), b(start), b(end)).thenApply(STRING_LIST);
+	}
+
+	@Override
+	public List<String> lrange(final int DBIndex, final String key, final long start, final long end) {
+		return await(key, lrangeAsync(DBIndex, key, start, end));
+	}
+
+	public CompletableFuture<List<String>> lrangeAsync(int DBIndex, String key, long start, long end) {
+		return transport.execute(DBIndex, Command.LRANGE, b(key), b(start), b(end)).thenApply(STRING_LIST);
+	}
+
+	@Override
+	public Long sadd(final String key, final String... members) {
+		return await(key, saddAsync(key, members));
+	}
+
+	public CompletableFuture<Long> saddAsync(String key, String... members) {
+		return transport.execute(0, Command.SADD, b(key, members)).thenApply(LONG);
+	}
+
+	@Override
+	public Long sadd(final int DBIndex, final String key, final String... members) {
+		return await(key, saddAsync(DBIndex, key, members));
+	}
+
+	public CompletableFuture<Long> saddAsync(int DBIndex, String key, String... members) {
+		return transport.execute(DBIndex, Command.SADD, b(key, members)).thenApply(LONG);
+	}
+
+	@Override
+	public Long srem(final String key, final String... members) {
+		return await(key, sremAsync(key, members));
+	}
+
+	public CompletableFuture<Long> sremAsync(String key, String... members) {
+		return transport.execute(0, Command.SREM, b(key, members)).thenApply(LONG);
+	}
+
+	@Override
+	public Long srem(final int DBIndex, final String key, final String... members) {
+		return await(key, sremAsync(DBIndex, key, members));
+	}
+
+	public CompletableFuture<Long> sremAsync(int DBIndex, String key, String... members) {
+		return transport.execute(DBIndex, Command.SREM, b(key, members)).thenApply(LONG);
+	}
+
+	@Override
+	public Set<String> smembers(final String key) {
+		return await(key, smembersAsync(key));
+	}
+
+	public CompletableFuture<Set<String>> smembersAsync(String key) {
+		return transport.execute(0, Command.SMEMBERS, b(key)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> smembers(final int DBIndex, final String key) {
+		return await(key, smembersAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Set<String>> smembersAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.SMEMBERS, b(key)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Boolean sismember(final String key, final String member) {
+		return await(key, sismemberAsync(key, member));
+	}
+
+	public CompletableFuture<Boolean> sismemberAsync(String key, String member) {
+		return transport.execute(0, Command.SISMEMBER, b(key), b(member)).thenApply(BOOLEAN);
+	}
+
+	@Override
+	public Boolean sismember(final int DBIndex, final String key, final String member) {
+		return await(key, sismemberAsync(DBIndex, key, member));
+	}
+
+	public CompletableFuture<Boolean> sismemberAsync(int DBIndex, String key, String member) {
+		return transport.execute(DBIndex, Command.SISMEMBER, b(key), b(member)).thenApply(BOOLEAN);
+	}
+
+	@Override
+	public Long scard(final String key) {
+		return await(key, scardAsync(key));
+	}
+
+	public CompletableFuture<Long> scardAsync(String key) {
+		return transport.execute(0, Command.SCARD, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long scard(final int DBIndex, final String key) {
+		return await(key, scardAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> scardAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.SCARD, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zadd(final String key, final double score, final String member) {
+		return await(key, zaddAsync(key, score, member));
+	}
+
+	public CompletableFuture<Long> zaddAsync(String key, double score, String member) {
+		return transport.execute(0, Command.ZADD, b(key), b(score), b(member)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zadd(final int DBIndex, final String key, final double score, final String member) {
+		return await(key, zaddAsync(DBIndex, key, score, member));
+	}
+
+	public CompletableFuture<Long> zaddAsync(int DBIndex, String key, double score, String member) {
+		return transport.execute(DBIndex, Command.ZADD, b(key), b(score), b(member)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zrem(final String key, final String... members) {
+		return await(key, zremAsync(key, members));
+	}
+
+	public CompletableFuture<Long> zremAsync(String key, String... members) {
+		return transport.execute(0, Command.ZREM, b(key, members)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zrem(final int DBIndex, final String key, final String... members) {
+		return await(key, zremAsync(DBIndex, key, members));
+	}
+
+	public CompletableFuture<Long> zremAsync(int DBIndex, String key, String... members) {
+		return transport.execute(DBIndex, Command.ZREM, b(key, members)).thenApply(LONG);
+	}
+
+	@Override
+	public Double zscore(final String key, final String member) {
+		return await(key, zscoreAsync(key, member));
+	}
+
+	public CompletableFuture<Double> zscoreAsync(String key, String member) {
+		return transport.execute(0, Command.ZSCORE, b(key), b(member)).thenApply(DOUBLE);
+	}
+
+	@Override
+	public Double zscore(final int DBIndex, final String key, final String member) {
+		return await(key, zscoreAsync(DBIndex, key, member));
+	}
+
+	public CompletableFuture<Double> zscoreAsync(int DBIndex, String key, String member) {
+		return transport.execute(DBIndex, Command.ZSCORE, b(key), b(member)).thenApply(DOUBLE);
+	}
+
+	@Override
+	public Long zcard(final String key) {
+		return await(key, zcardAsync(key));
+	}
+
+	public CompletableFuture<Long> zcardAsync(String key) {
+		return transport.execute(0, Command.ZCARD, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zcard(final int DBIndex, final String key) {
+		return await(key, zcardAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> zcardAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.ZCARD, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Set<String> zrange(final String key, final long start, final long end) {
+		return await(key, zrangeAsync(key, start, end));
+	}
+
+	public CompletableFuture<Set<String>> zrangeAsync(String key, long start, long end) {
+		return transport.execute(0, Command.ZRANGE, b(key), b(start), b(end)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> zrange(final int DBIndex, final String key, final long start, final long end) {
+		return await(key, zrangeAsync(DBIndex, key, start, end));
+	}
+
+	public CompletableFuture<Set<String>> zrangeAsync(int DBIndex, String key, long start, long end) {
+		return transport.execute(DBIndex, Command.ZRANGE, b(key), b(start), b(end)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> zrevrange(final String key, final long start, final long end) {
+		return await(key, zrevrangeAsync(key, start, end));
+	}
+
+	public CompletableFuture<Set<String>> zrevrangeAsync(String key, long start, long end) {
+		return transport.execute(0, Command.ZREVRANGE, b(key), b(start), b(end)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> zrevrange(final int DBIndex, final String key, final long start, final long end) {
+		return await(key, zrevrangeAsync(DBIndex, key, start, end));
+	}
+
+	public CompletableFuture<Set<String>> zrevrangeAsync(int DBIndex, String key, long start, long end) {
+		return transport.execute(DBIndex, Command.ZREVRANGE, b(key), b(start), b(end)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> zrangeByScore(final String key, final double min, final double max) {
+		return await(key, zrangeByScoreAsync(key, min, max));
+	}
+
+	public CompletableFuture<Set<String>> zrangeByScoreAsync(String key, double min, double max) {
+		return transport.execute(0, Command.ZRANGEBYSCORE, b(key), b(min), b(max)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> zrangeByScore(final int DBIndex, final String key, final double min, final double max) {
+		return await(key, zrangeByScoreAsync(DBIndex, key, min, max));
+	}
+
+	public CompletableFuture<Set<String>> zrangeByScoreAsync(int DBIndex, String key, double min, double max) {
+		return transport.execute(DBIndex, Command.ZRANGEBYSCORE, b(key), b(min), b(max)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public String type(final String key) {
+		return await(key, typeAsync(key));
+	}
+
+	public CompletableFuture<String> typeAsync(String key) {
+		return transport.execute(0, Command.TYPE, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String type(final int DBIndex, final String key) {
+		return await(key, typeAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<String> typeAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.TYPE, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public Long expireAt(final String key, final long unixTime) {
+		return await(key, expireAtAsync(key, unixTime));
+	}
+
+	public CompletableFuture<Long> expireAtAsync(String key, long unixTime) {
+		return transport.execute(0, Command.EXPIREAT, b(key), b(unixTime)).thenApply(LONG);
+	}
+
+	@Override
+	public Long expireAt(final int DBIndex, final String key, final long unixTime) {
+		return await(key, expireAtAsync(DBIndex, key, unixTime));
+	}
+
+	public CompletableFuture<Long> expireAtAsync(int DBIndex, String key, long unixTime) {
+		return transport.execute(DBIndex, Command.EXPIREAT, b(key), b(unixTime)).thenApply(LONG);
+	}
+
+	@Override
+	public Long persist(final String key) {
+		return await(key, persistAsync(key));
+	}
+
+	public CompletableFuture<Long> persistAsync(String key) {
+		return transport.execute(0, Command.PERSIST, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long persist(final int DBIndex, final String key) {
+		return await(key, persistAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> persistAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.PERSIST, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long append(final String key, final String value) {
+		return await(key, appendAsync(key, value));
+	}
+
+	public CompletableFuture<Long> appendAsync(String key, String value) {
+		checkRawValueCommand("append");
+		return transport.execute(0, Command.APPEND, b(key), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Long append(final int DBIndex, final String key, final String value) {
+		return await(key, appendAsync(DBIndex, key, value));
+	}
+
+	public CompletableFuture<Long> appendAsync(int DBIndex, String key, String value) {
+		checkRawValueCommand("append");
+		return transport.execute(DBIndex, Command.APPEND, b(key), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Long strlen(final String key) {
+		return await(key, strlenAsync(key));
+	}
+
+	public CompletableFuture<Long> strlenAsync(String key) {
+		checkRawValueCommand("strlen");
+		return transport.execute(0, Command.STRLEN, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long strlen(final int DBIndex, final String key) {
+		return await(key, strlenAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Long> strlenAsync(int DBIndex, String key) {
+		checkRawValueCommand("strlen");
+		return transport.execute(DBIndex, Command.STRLEN, b(key)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hsetnx(final String key, final String field, final String value) {
+		return await(key, hsetnxAsync(key, field, value));
+	}
+
+	public CompletableFuture<Long> hsetnxAsync(String key, String field, String value) {
+		return transport.execute(0, Command.HSETNX, b(key), b(field), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Long hsetnx(final int DBIndex, final String key, final String field, final String value) {
+		return await(key, hsetnxAsync(DBIndex, key, field, value));
+	}
+
+	public CompletableFuture<Long> hsetnxAsync(int DBIndex, String key, String field, String value) {
+		return transport.execute(DBIndex, Command.HSETNX, b(key), b(field), b(value)).thenApply(LONG);
+	}
+
+	@Override
+	public Set<String> hkeys(final String key) {
+		return await(key, hkeysAsync(key));
+	}
+
+	public CompletableFuture<Set<String>> hkeysAsync(String key) {
+		return transport.execute(0, Command.HKEYS, b(key)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> hkeys(final int DBIndex, final String key) {
+		return await(key, hkeysAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<Set<String>> hkeysAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.HKEYS, b(key)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public List<String> hvals(final String key) {
+		return await(key, hvalsAsync(key));
+	}
+
+	public CompletableFuture<List<String>> hvalsAsync(String key) {
+		return transport.execute(0, Command.HVALS, b(key)).thenApply(STRING_LIST);
+	}
+
+	@Override
+	public List<String> hvals(final int DBIndex, final String key) {
+		return await(key, hvalsAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<List<String>> hvalsAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.HVALS, b(key)).thenApply(STRING_LIST);
+	}
+
+	@Override
+	public String lindex(final String key, final long index) {
+		return await(key, lindexAsync(key, index));
+	}
+
+	public CompletableFuture<String> lindexAsync(String key, long index) {
+		return transport.execute(0, Command.LINDEX, b(key), b(index)).thenApply(STRING);
+	}
+
+	@Override
+	public String lindex(final int DBIndex, final String key, final long index) {
+		return await(key, lindexAsync(DBIndex, key, index));
+	}
+
+	public CompletableFuture<String> lindexAsync(int DBIndex, String key, long index) {
+		return transport.execute(DBIndex, Command.LINDEX, b(key), b(index)).thenApply(STRING);
+	}
+
+	@Override
+	public String ltrim(final String key, final long start, final long end) {
+		return await(key, ltrimAsync(key, start, end));
+	}
+
+	public CompletableFuture<String> ltrimAsync(String key, long start, long end) {
+		return transport.execute(0, Command.LTRIM, b(key), b(start), b(end)).thenApply(STRING);
+	}
+
+	@Override
+	public String ltrim(final int DBIndex, final String key, final long start, final long end) {
+		return await(key, ltrimAsync(DBIndex, key, start, end));
+	}
+
+	public CompletableFuture<String> ltrimAsync(int DBIndex, String key, long start, long end) {
+		return transport.execute(DBIndex, Command.LTRIM, b(key), b(start), b(end)).thenApply(STRING);
+	}
+
+	@Override
+	public String spop(final String key) {
+		return await(key, spopAsync(key));
+	}
+
+	public CompletableFuture<String> spopAsync(String key) {
+		return transport.execute(0, Command.SPOP, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String spop(final int DBIndex, final String key) {
+		return await(key, spopAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<String> spopAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.SPOP, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String srandmember(final String key) {
+		return await(key, srandmemberAsync(key));
+	}
+
+	public CompletableFuture<String> srandmemberAsync(String key) {
+		return transport.execute(0, Command.SRANDMEMBER, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public String srandmember(final int DBIndex, final String key) {
+		return await(key, srandmemberAsync(DBIndex, key));
+	}
+
+	public CompletableFuture<String> srandmemberAsync(int DBIndex, String key) {
+		return transport.execute(DBIndex, Command.SRANDMEMBER, b(key)).thenApply(STRING);
+	}
+
+	@Override
+	public Double zincrby(final String key, final double score, final String member) {
+		return await(key, zincrbyAsync(key, score, member));
+	}
+
+	public CompletableFuture<Double> zincrbyAsync(String key, double score, String member) {
+		return transport.execute(0, Command.ZINCRBY, b(key), b(score), b(member)).thenApply(DOUBLE);
+	}
+
+	@Override
+	public Double zincrby(final int DBIndex, final String key, final double score, final String member) {
+		return await(key, zincrbyAsync(DBIndex, key, score, member));
+	}
+
+	public CompletableFuture<Double> zincrbyAsync(int DBIndex, String key, double score, String member) {
+		return transport.execute(DBIndex, Command.ZINCRBY, b(key), b(score), b(member)).thenApply(DOUBLE);
+	}
+
+	@Override
+	public Long zrank(final String key, final String member) {
+		return await(key, zrankAsync(key, member));
+	}
+
+	public CompletableFuture<Long> zrankAsync(String key, String member) {
+		return transport.execute(0, Command.ZRANK, b(key), b(member)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zrank(final int DBIndex, final String key, final String member) {
+		return await(key, zrankAsync(DBIndex, key, member));
+	}
+
+	public CompletableFuture<Long> zrankAsync(int DBIndex, String key, String member) {
+		return transport.execute(DBIndex, Command.ZRANK, b(key), b(member)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zrevrank(final String key, final String member) {
+		return await(key, zrevrankAsync(key, member));
+	}
+
+	public CompletableFuture<Long> zrevrankAsync(String key, String member) {
+		return transport.execute(0, Command.ZREVRANK, b(key), b(member)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zrevrank(final int DBIndex, final String key, final String member) {
+		return await(key, zrevrankAsync(DBIndex, key, member));
+	}
+
+	public CompletableFuture<Long> zrevrankAsync(int DBIndex, String key, String member) {
+		return transport.execute(DBIndex, Command.ZREVRANK, b(key), b(member)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zcount(final String key, final double min, final double max) {
+		return await(key, zcountAsync(key, min, max));
+	}
+
+	public CompletableFuture<Long> zcountAsync(String key, double min, double max) {
+		return transport.execute(0, Command.ZCOUNT, b(key), b(min), b(max)).thenApply(LONG);
+	}
+
+	@Override
+	public Long zcount(final int DBIndex, final String key, final double min, final double max) {
+		return await(key, zcountAsync(DBIndex, key, min, max));
+	}
+
+	public CompletableFuture<Long> zcountAsync(int DBIndex, String key, double min, double max) {
+		return transport.execute(DBIndex, Command.ZCOUNT, b(key), b(min), b(max)).thenApply(LONG);
+	}
+
+	@Override
+	public Set<String> zrevrangeByScore(final String key, final double max, final double min) {
+		return await(key, zrevrangeByScoreAsync(key, max, min));
+	}
+
+	public CompletableFuture<Set<String>> zrevrangeByScoreAsync(String key, double max, double min) {
+		return transport.execute(0, Command.ZREVRANGEBYSCORE, b(key), b(max), b(min)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public Set<String> zrevrangeByScore(final int DBIndex, final String key, final double max, final double min) {
+		return await(key, zrevrangeByScoreAsync(DBIndex, key, max, min));
+	}
+
+	public CompletableFuture<Set<String>> zrevrangeByScoreAsync(int DBIndex, String key, double max, double min) {
+		return transport.execute(DBIndex, Command.ZREVRANGEBYSCORE, b(key), b(max), b(min)).thenApply(STRING_SET);
+	}
+
+	@Override
+	public String set(final int DBIndex, final String key, final int seconds, final String value) {
+		return setex(DBIndex, key, seconds, value);
+	}
+
+	private <T> T await(String key, CompletableFuture<T> future) {
+		try {
+			return future.get(transport.getTimeout(), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof JedisConnectionException) {
+				throw new RedisShardConnectException("Faild when execute operation for key :=" + key, e.getCause());
+			}
+			throw new CommonRuntimeException("Do operation failed for key :=" + key, e.getCause());
+		} catch (TimeoutException e) {
+			throw new RedisShardConnectException("Timeout when execute operation for key :=" + key, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CommonRuntimeException("Do operation interrupted for key :=" + key, e);
+		}
+	}
+
+	private static byte[] b(String value) {
+		return SafeEncoder.encode(value);
+	}
+
+	private static byte[] b(long value) {
+		return Protocol.toByteArray(value);
+	}
+
+	private static byte[] b(double value) {
+		return Protocol.toByteArray(value);
+	}
+
+	private static byte[][] b(String key, String... values) {
+		byte[][] args = new byte[values.length + 1][];
+		args[0] = b(key);
+		for (int i = 0; i < values.length; i++) {
+			args[i + 1] = b(values[i]);
+		}
+		return args;
+	}
+
+	private static byte[][] b(String key, Map<String, String> hash) {
+		byte[][] args = new byte[hash.size() * 2 + 1][];
+		args[0] = b(key);
+		int i = 1;
+		for (Entry<String, String> entry : hash.entrySet()) {
+			args[i++] = b(entry.getKey());
+			args[i++] = b(entry.getValue());
+		}
+		return args;
+	}
+
+	static String asString(Object reply) {
+		if (reply instanceof byte[]) {
+			return SafeEncoder.encode((byte[]) reply);
+		}
+		return (String) reply;
+	}
+
+	static Long asLong(Object reply) {
+		return (Long) reply;
+	}
+
+	static Boolean asBoolean(Object reply) {
+		return reply == null ? null : ((Long) reply) == 1L;
+	}
+
+	static Double asDouble(Object reply) {
+		return reply == null ? null : Double.valueOf(asString(reply));
+	}
+
+	@SuppressWarnings("unchecked")
+	static List<String> asStringList(Object reply) {
+		if (reply == null) {
+			return null;
+		}
+		List<Object> multi = (List<Object>) reply;
+		List<String> result = new ArrayList<String>(multi.size());
+		for (Object item : multi) {
+			result.add(asString(item));
+		}
+		return result;
+	}
+
+	static Set<String> asStringSet(Object reply) {
+		if (reply == null) {
+			return null;
+		}
+		return new LinkedHashSet<String>(asStringList(reply));
+	}
+
+	static Map<String, String> asStringMap(Object reply) {
+		if (reply == null) {
+			return null;
+		}
+		List<String> multi = asStringList(reply);
+		Map<String, String> result = new HashMap<String, String>(multi.size());
+		for (int i = 0; i + 1 < multi.size(); i += 2) {
+			result.put(multi.get(i), multi.get(i + 1));
+		}
+		return result;
+	}
+}
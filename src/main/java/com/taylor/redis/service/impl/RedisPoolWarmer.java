@@ -0,0 +1,114 @@
+package com.taylor.redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+/**
+ * 启动时并行预热连接池: 同时从每个池借出count个连接(池为空时即新建连接), 全部建好后再一起归还.
+ * 在工厂的afterPropertiesSet里同步执行, dubbo服务(delay=-1)在容器刷新完成后才暴露, 因此暴露前预热已完成.
+ */
+@Log4j2
+public class RedisPoolWarmer {
+
+	/* 最多同时建立的连接数 */
+	private static final int MAX_THREADS = 32;
+
+	public interface WarmUpTarget {
+
+		Jedis borrow();
+
+		void giveBack(Jedis jedis);
+
+		String getName();
+	}
+
+	private final List<WarmUpTarget> targets = new ArrayList<WarmUpTarget>();
+
+	/* 每个池预热的连接数 */
+	private final List<Integer> counts = new ArrayList<Integer>();
+
+	public void add(WarmUpTarget target, int count) {
+		if (count > 0) {
+			targets.add(target);
+			counts.add(count);
+		}
+	}
+
+	public void add(final String name, final Pool<Jedis> pool, int count) {
+		add(new WarmUpTarget() {
+
+			public Jedis borrow() {
+				return pool.getResource();
+			}
+
+			public void giveBack(Jedis jedis) {
+				jedis.close();
+			}
+
+			public String getName() {
+				return name;
+			}
+		}, count);
+	}
+
+	/**
+	 * @return 预热耗时(ms)
+	 */
+	public long warmUp() {
+		long start = System.currentTimeMillis();
+		int total = 0;
+		for (Integer count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(total, MAX_THREADS));
+		List<Future<Jedis>> borrowed = new ArrayList<Future<Jedis>>();
+		List<WarmUpTarget> owners = new ArrayList<WarmUpTarget>();
+		try {
+			for (int t = 0; t < targets.size(); t++) {
+				final WarmUpTarget target = targets.get(t);
+				for (int i = 0; i < counts.get(t); i++) {
+					borrowed.add(executor.submit(new Callable<Jedis>() {
+
+						public Jedis call() throws Exception {
+							return target.borrow();
+						}
+					}));
+					owners.add(target);
+				}
+			}
+			/* 先等全部借出再归还, 否则先还回的连接会被后面的借出复用 */
+			int failed = 0;
+			List<Jedis> connections = new ArrayList<Jedis>();
+			for (int i = 0; i < borrowed.size(); i++) {
+				try {
+					connections.add(borrowed.get(i).get());
+				} catch (Exception e) {
+					connections.add(null);
+					failed++;
+					log.warn("Warm up redis pool " + owners.get(i).getName() + " failed", e);
+				}
+			}
+			for (int i = 0; i < connections.size(); i++) {
+				if (connections.get(i) != null) {
+					owners.get(i).giveBack(connections.get(i));
+				}
+			}
+			long cost = System.currentTimeMillis() - start;
+			log.info("Warm up " + targets.size() + " redis pools with " + total + " connections, failed " + failed + ", consume times(ms): " + cost);
+			return cost;
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
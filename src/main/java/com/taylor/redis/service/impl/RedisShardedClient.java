@@ -1,15 +1,36 @@
 package com.taylor.redis.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 
+import com.taylor.common.exceptions.CommonRuntimeException;
 import com.taylor.redis.common.client.JedisCallBack;
 import com.taylor.redis.common.client.RedisBinaryClient;
 import com.taylor.redis.common.shard.RedisMasterSlaverGroup;
 import com.taylor.redis.common.shard.RedisShardSplit;
+import com.taylor.redis.exception.RedisShardConnectException;
 import com.taylor.redis.service.RedisClientService;
+import com.taylor.redis.service.impl.codec.RedisValueSerializer;
+import com.taylor.redis.service.impl.monitor.RedisHotKeyDetector;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
+import com.taylor.redis.service.impl.replica.RedisHedgePolicy;
+import com.taylor.redis.service.impl.replica.RedisReadRouter;
+import com.taylor.redis.service.impl.replica.RedisReplicaNode;
+import com.taylor.redis.service.impl.replica.RedisTopologyMonitor;
+
+import lombok.extern.log4j.Log4j2;
 
 import redis.clients.jedis.BinaryClient.LIST_POSITION;
 import redis.clients.jedis.BitPosParams;
@@ -18,23 +39,654 @@ import redis.clients.jedis.GeoRadiusResponse;
 import redis.clients.jedis.GeoUnit;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.SortingParams;
 import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.params.geo.GeoRadiusParam;
 import redis.clients.jedis.params.sortedset.ZAddParams;
 import redis.clients.jedis.params.sortedset.ZIncrByParams;
 import redis.clients.util.SafeEncoder;
 
+@Log4j2
 public class RedisShardedClient extends RedisBinaryClient implements RedisClientService {
 
+	private RedisShardSplit<JedisPool, RedisMasterSlaverGroup> splitor;
+
+	/* 延迟统计, 为空时不统计 */
+	private RedisMetrics metrics;
+
+	/* 热点key探测, 为空时不探测 */
+	private RedisHotKeyDetector hotKeys;
+
+	/* 对象值的序列化, 默认Java序列化 */
+	private RedisValueSerializer serializer = new RedisValueSerializer();
+
+	/* 批量命令并行访问各分片组的线程池, 为空时依次访问 */
+	private ExecutorService batchExecutor;
+
+	/* 只读命令的节点选择, 为空时只读主节点 */
+	private RedisReadRouter readRouter;
+
+	/* 对冲读, 为空时不对冲; 需要readRouter */
+	private RedisHedgePolicy hedgePolicy;
+
+	/* 主节点切换探测, 切换后改用其中的主节点连接池 */
+	private RedisTopologyMonitor topologyMonitor;
+
+	/**
+	 * 批量命令中落在同一分片组的key, 在该组的一个连接上一次发送
+	 */
+	private interface ShardBatchCallBack<V> {
+
+		/**
+		 * @return 每个key的结果
+		 */
+		Map<String, V> doBiz(Jedis j, List<String> keys);
+
+		String getOperationName();
+	}
+
 	public RedisShardedClient() {
 		super();
 	}
 
 	public RedisShardedClient(RedisShardSplit<JedisPool, RedisMasterSlaverGroup> splitor) {
 		super(splitor);
+		this.splitor = splitor;
+	}
+
+	public RedisMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(RedisMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public RedisValueSerializer getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(RedisValueSerializer serializer) {
+		this.serializer = serializer;
+	}
+
+	@Override
+	protected byte[] serialize(Object o) {
+		return serializer.serialize(o);
+	}
+
+	@Override
+	protected Object deserialize(byte[] in) {
+		return serializer.deserialize(in);
+	}
+
+	public RedisHotKeyDetector getHotKeys() {
+		return hotKeys;
+	}
+
+	public void setHotKeys(RedisHotKeyDetector hotKeys) {
+		this.hotKeys = hotKeys;
+	}
+
+	public ExecutorService getBatchExecutor() {
+		return batchExecutor;
+	}
+
+	public void setBatchExecutor(ExecutorService batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
+	public RedisReadRouter getReadRouter() {
+		return readRouter;
+	}
+
+	public void setReadRouter(RedisReadRouter readRouter) {
+		this.readRouter = readRouter;
+	}
+
+	public RedisHedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	public void setHedgePolicy(RedisHedgePolicy hedgePolicy) {
+		this.hedgePolicy = hedgePolicy;
+	}
+
+	public RedisTopologyMonitor getTopologyMonitor() {
+		return topologyMonitor;
+	}
+
+	public void setTopologyMonitor(RedisTopologyMonitor topologyMonitor) {
+		this.topologyMonitor = topologyMonitor;
+	}
+
+	private void recordHotKey(String key, String operation) {
+		if (null != hotKeys && hotKeys.sample()) {
+			/* 按命令和分片组分别统计热点key */
+			hotKeys.record(key, operation, "group " + splitor.getShardInfo(key).getId());
+		}
+	}
+
+	@Override
+	public <E> E doOperation(final String key, final JedisCallBack<E> callback) {
+		recordHotKey(key, callback.getOperationName());
+		return doGroupOperation(key, callback);
+	}
+
+	/**
+	 * 在key所在分片组的连接上执行, 不统计热点key
+	 */
+	private <E> E doGroupOperation(final String key, final JedisCallBack<E> callback) {
+		final Integer groupId = null == metrics && null == topologyMonitor ? null : splitor.getShardInfo(key).getId();
+		final JedisPool master = null == topologyMonitor ? null : topologyMonitor.getMasterPool(groupId);
+		if (null == metrics) {
+			return null == master ? super.doOperation(key, callback) : doMasterOperation(master, key, callback);
+		}
+		/* 按命令和分片组分别统计, 借连接的等待时间单独统计 */
+		final String group = "group " + groupId;
+		final long start = System.nanoTime();
+		final long[] borrowed = new long[] { start };
+		JedisCallBack<E> timed = new JedisCallBack<E>() {
+
+			public E doBiz(Jedis j) {
+				borrowed[0] = System.nanoTime();
+				metrics.recordBorrow(group, borrowed[0] - start);
+				return callback.doBiz(j);
+			}
+
+			public String getOperationName() {
+				return callback.getOperationName();
+			}
+		};
+		E rs = null == master ? super.doOperation(key, timed) : doMasterOperation(master, key, timed);
+		long elapsed = System.nanoTime() - borrowed[0];
+		metrics.recordCommand(callback.getOperationName(), elapsed);
+		metrics.recordCommand(group + ":" + callback.getOperationName(), elapsed);
+		return rs;
+	}
+
+	/**
+	 * 在主节点切换后的连接池上执行, 与分片连接池上的doOperation一样包装异常, 统计由doGroupOperation负责
+	 */
+	private <E> E doMasterOperation(JedisPool pool, String key, JedisCallBack<E> callback) {
+		Jedis jedis = null;
+		try {
+			jedis = pool.getResource();
+			return callback.doBiz(jedis);
+		} catch (RuntimeException e) {
+			throw operationFailed(key, callback.getOperationName(), e);
+		} finally {
+			if (null != jedis) {
+				jedis.close();
+			}
+		}
+	}
+
+	/**
+	 * 只读命令: 按读策略在key所在分片组的主节点或从节点上执行
+	 */
+	private <E> E doReadOperation(final String key, final JedisCallBack<E> callback) {
+		recordHotKey(key, callback.getOperationName());
+		return doGroupRead(key, callback);
+	}
+
+	/**
+	 * 从节点连接出错或暂时不能读取时, 改在主节点上执行, 不统计热点key
+	 */
+	private <E> E doGroupRead(final String key, final JedisCallBack<E> callback) {
+		Integer groupId = null == readRouter ? null : splitor.getShardInfo(key).getId();
+		RedisReplicaNode node = null == readRouter ? null : readRouter.select(groupId);
+		if (null == node) {
+			return doGroupOperation(key, callback);
+		}
+		if (null != hedgePolicy) {
+			return doHedgedRead(groupId, node, key, callback);
+		}
+		return doNodeRead(node, key, callback);
+	}
+
+	private <E> E doNodeRead(RedisReplicaNode node, String key, JedisCallBack<E> callback) {
+		if (node.isMaster()) {
+			long start = System.nanoTime();
+			node.begin();
+			try {
+				E rs = doGroupOperation(key, callback);
+				node.recordLatency(System.nanoTime() - start);
+				return rs;
+			} finally {
+				node.end();
+			}
+		}
+		try {
+			return doReplicaOperation(node, callback);
+		} catch (JedisConnectionException e) {
+			log.warn("Read from redis " + node + " failed, fall back to master", e);
+			readRouter.markDown(node);
+		} catch (JedisDataException e) {
+			/* 从节点正在加载数据, 或与主节点断开且配置了不提供旧数据 */
+			if (null == e.getMessage() || !(e.getMessage().startsWith("LOADING") || e.getMessage().startsWith("MASTERDOWN"))) {
+				throw operationFailed(key, callback.getOperationName(), e);
+			}
+			readRouter.markLagging(node);
+		} catch (RuntimeException e) {
+			throw operationFailed(key, callback.getOperationName(), e);
+		}
+		return doGroupOperation(key, callback);
+	}
+
+	/**
+	 * 与分片连接池上的doOperation一致: 连接异常包装为RedisShardConnectException, 其他异常包装为CommonRuntimeException
+	 */
+	private RuntimeException operationFailed(String key, String operation, RuntimeException e) {
+		if (e instanceof HedgeAborted) {
+			return e;
+		}
+		if (e instanceof JedisConnectionException) {
+			log.error("jedis connection Exception", e);
+			return new RedisShardConnectException("Faild when execute operation  " + operation, e);
+		}
+		log.error("Do operation failed for key :=" + key, e);
+		return new CommonRuntimeException("Do operation failed for key :=" + key, e);
+	}
+
+	/**
+	 * 对冲读: 原请求在调用方线程执行, 超过该组读耗时p95仍未返回, 且在预算内时, 向同组另一节点再发一次, 返回先成功的结果.
+	 * 对冲先成功时关闭原请求连接的输入端, 使调用方线程从阻塞的读中返回, 该连接下次使用时由jedis重新连接
+	 */
+	private <E> E doHedgedRead(final Integer groupId, final RedisReplicaNode node, final String key, final JedisCallBack<E> callback) {
+		final HedgeState<E> state = new HedgeState<E>();
+		long delay = hedgePolicy.getDelayMicros(groupId);
+		ScheduledFuture<?> timer = null;
+		if (delay > 0) {
+			timer = hedgePolicy.schedule(new Runnable() {
+
+				public void run() {
+					startHedge(groupId, node, key, callback, state);
+				}
+			}, delay);
+		}
+		JedisCallBack<E> primary = new JedisCallBack<E>() {
+
+			public E doBiz(Jedis j) {
+				state.attach(j);
+				boolean succeeded = false;
+				try {
+					E rs = callback.doBiz(j);
+					succeeded = true;
+					return rs;
+				} catch (RuntimeException e) {
+					if (state.isHedgeWon()) {
+						throw new HedgeAborted();
+					}
+					throw e;
+				} finally {
+					state.detach(succeeded);
+				}
+			}
+
+			public String getOperationName() {
+				return callback.getOperationName();
+			}
+		};
+		long start = System.nanoTime();
+		try {
+			E rs = doNodeRead(node, key, primary);
+			hedgePolicy.recordRead(groupId, System.nanoTime() - start);
+			/* 对冲请求先成功, 但原请求已读到回复 */
+			return state.isHedgeWon() ? state.getHedgeResult() : rs;
+		} catch (RuntimeException e) {
+			/* 原请求失败时等待已发出的对冲请求 */
+			try {
+				if (state.awaitHedge()) {
+					return state.getHedgeResult();
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			throw e;
+		} finally {
+			if (null != timer) {
+				timer.cancel(false);
+			}
+			state.finish();
+		}
+	}
+
+	/**
+	 * 在定时器线程上执行, 取得令牌后把对冲请求交给对冲线程池, 线程池已满时不对冲
+	 */
+	private <E> void startHedge(Integer groupId, RedisReplicaNode node, final String key, final JedisCallBack<E> callback, final HedgeState<E> state) {
+		final RedisReplicaNode other = readRouter.selectOther(groupId, node);
+		if (null == other || !state.startHedge()) {
+			return;
+		}
+		Runnable hedge = new Runnable() {
+
+			public void run() {
+				try {
+					if (state.hedgeSucceeded(doNodeRead(other, key, callback))) {
+						hedgePolicy.recordWin();
+					}
+				} catch (Throwable e) {
+					state.hedgeFailed();
+				}
+			}
+		};
+		if (!hedgePolicy.tryHedge() || !hedgePolicy.execute(hedge)) {
+			state.hedgeFailed();
+		}
+	}
+
+	/**
+	 * 对冲先成功后中断的原请求, 不标记节点下线, 也不包装
+	 */
+	private static class HedgeAborted extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		HedgeAborted() {
+			super("Aborted by hedged read", null, false, false);
+		}
+	}
+
+	/**
+	 * 一次对冲读中原请求与对冲请求的状态
+	 */
+	private static class HedgeState<E> {
+
+		/* 原请求正在使用的连接 */
+		private Jedis primary;
+
+		private boolean primarySucceeded;
+
+		private boolean primaryFailed;
+
+		/* 调用方已返回, 对冲结果不再使用 */
+		private boolean finished;
+
+		private boolean hedging;
+
+		private boolean hedgeDone;
+
+		private boolean hedgeWon;
+
+		private E hedgeResult;
+
+		synchronized void attach(Jedis j) {
+			if (hedgeWon) {
+				throw new HedgeAborted();
+			}
+			primary = j;
+		}
+
+		synchronized void detach(boolean succeeded) {
+			primary = null;
+			primarySucceeded = succeeded;
+		}
+
+		synchronized boolean startHedge() {
+			if (primarySucceeded || primaryFailed || finished) {
+				return false;
+			}
+			hedging = true;
+			return true;
+		}
+
+		/**
+		 * @return 对冲请求先于原请求成功时返回true, 并中断原请求
+		 */
+		synchronized boolean hedgeSucceeded(E rs) {
+			hedgeDone = true;
+			if (primarySucceeded || finished) {
+				return false;
+			}
+			hedgeResult = rs;
+			hedgeWon = true;
+			if (null != primary) {
+				try {
+					primary.getClient().getSocket().shutdownInput();
+				} catch (Exception e) {
+					log.debug("Abort hedged primary read failed", e);
+				}
+			}
+			notifyAll();
+			return true;
+		}
+
+		synchronized void hedgeFailed() {
+			hedgeDone = true;
+			notifyAll();
+		}
+
+		synchronized boolean isHedgeWon() {
+			return hedgeWon;
+		}
+
+		/**
+		 * 原请求失败后调用, 等待已发出的对冲请求结束
+		 *
+		 * @return 对冲请求是否成功
+		 */
+		synchronized boolean awaitHedge() throws InterruptedException {
+			primaryFailed = true;
+			while (hedging && !hedgeDone) {
+				wait();
+			}
+			return hedgeWon;
+		}
+
+		synchronized E getHedgeResult() {
+			return hedgeResult;
+		}
+
+		synchronized void finish() {
+			finished = true;
+		}
+	}
+
+	private <E> E doReplicaOperation(RedisReplicaNode node, JedisCallBack<E> callback) {
+		Jedis jedis = null;
+		long start = System.nanoTime();
+		node.begin();
+		try {
+			jedis = node.getPool().getResource();
+			long borrowed = System.nanoTime();
+			if (null != metrics) {
+				metrics.recordBorrow(node.getName(), borrowed - start);
+			}
+			E rs = callback.doBiz(jedis);
+			long elapsed = System.nanoTime() - borrowed;
+			node.recordLatency(elapsed);
+			if (null != metrics) {
+				metrics.recordCommand(callback.getOperationName(), elapsed);
+				metrics.recordCommand(node.getName() + ":" + callback.getOperationName(), elapsed);
+			}
+			return rs;
+		} finally {
+			node.end();
+			if (null != jedis) {
+				jedis.close();
+			}
+		}
+	}
+
+	/**
+	 * 按分片组拆分key, 每组在各自的连接上一次发送, 多个组并行执行, 合并各组的结果; read为true时按读策略选择节点
+	 */
+	private <V> Map<String, V> doShardBatch(List<String> keys, final ShardBatchCallBack<V> callback, final boolean read) {
+		Map<Integer, List<String>> groupKeys = new LinkedHashMap<Integer, List<String>>();
+		for (String key : new LinkedHashSet<String>(keys)) {
+			recordHotKey(key, callback.getOperationName());
+			Integer groupId = splitor.getShardInfo(key).getId();
+			List<String> list = groupKeys.get(groupId);
+			if (list == null) {
+				list = new ArrayList<String>();
+				groupKeys.put(groupId, list);
+			}
+			list.add(key);
+		}
+		Map<String, V> result = new HashMap<String, V>();
+		List<Future<Map<String, V>>> futures = new ArrayList<Future<Map<String, V>>>();
+		List<List<String>> groups = new ArrayList<List<String>>(groupKeys.values());
+		for (int i = 0; i < groups.size(); i++) {
+			final List<String> group = groups.get(i);
+			Callable<Map<String, V>> task = new Callable<Map<String, V>>() {
+
+				public Map<String, V> call() {
+					JedisCallBack<Map<String, V>> groupCallback = new JedisCallBack<Map<String, V>>() {
+
+						public Map<String, V> doBiz(Jedis j) {
+							return callback.doBiz(j, group);
+						}
+
+						public String getOperationName() {
+							return callback.getOperationName();
+						}
+					};
+					return read ? doGroupRead(group.get(0), groupCallback) : doGroupOperation(group.get(0), groupCallback);
+				}
+			};
+			/* 最后一组在调用方线程执行 */
+			if (null == batchExecutor || i == groups.size() - 1) {
+				result.putAll(callCurrent(task));
+			} else {
+				futures.add(batchExecutor.submit(task));
+			}
+		}
+		for (Future<Map<String, V>> future : futures) {
+			try {
+				result.putAll(future.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RedisShardConnectException("Faild when execute operation  " + callback.getOperationName(), e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisShardConnectException("Interrupted when execute operation  " + callback.getOperationName(), e);
+			}
+		}
+		return result;
+	}
+
+	private static <V> V callCurrent(Callable<V> task) {
+		try {
+			return task.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CommonRuntimeException("Do batch operation failed", e);
+		}
+	}
+
+	/**
+	 * 跨分片批量读, 每个分片组一次MGET, 各组并行
+	 *
+	 * @return 按keys的顺序, 不存在的key为null
+	 */
+	public List<String> mget(List<String> keys) {
+		Map<String, String> values = doShardBatch(keys, new ShardBatchCallBack<String>() {
+
+			public Map<String, String> doBiz(Jedis j, List<String> keys) {
+				List<String> list = j.mget(keys.toArray(new String[keys.size()]));
+				Map<String, String> result = new HashMap<String, String>();
+				for (int i = 0; i < keys.size(); i++) {
+					result.put(keys.get(i), list.get(i));
+				}
+				return result;
+			}
+
+			public String getOperationName() {
+				return "mget";
+			}
+		}, true);
+		List<String> result = new ArrayList<String>(keys.size());
+		for (String key : keys) {
+			result.add(values.get(key));
+		}
+		return result;
+	}
+
+	/**
+	 * 跨分片批量写, 每个分片组一次MSET, 各组并行
+	 */
+	public String mset(final Map<String, String> values) {
+		doShardBatch(new ArrayList<String>(values.keySet()), new ShardBatchCallBack<String>() {
+
+			public Map<String, String> doBiz(Jedis j, List<String> keys) {
+				String[] keysvalues = new String[keys.size() * 2];
+				for (int i = 0; i < keys.size(); i++) {
+					keysvalues[i * 2] = keys.get(i);
+					keysvalues[i * 2 + 1] = values.get(keys.get(i));
+				}
+				j.mset(keysvalues);
+				return Collections.emptyMap();
+			}
+
+			public String getOperationName() {
+				return "mset";
+			}
+		}, false);
+		return "OK";
+	}
+
+	/**
+	 * 跨分片批量写并设置过期时间(秒), 每个分片组一次管道, 各组并行
+	 */
+	public String mset(final Map<String, String> values, final int seconds) {
+		doShardBatch(new ArrayList<String>(values.keySet()), new ShardBatchCallBack<String>() {
+
+			public Map<String, String> doBiz(Jedis j, List<String> keys) {
+				Pipeline p = j.pipelined();
+				for (String key : keys) {
+					p.setex(key, seconds, values.get(key));
+				}
+				p.sync();
+				return Collections.emptyMap();
+			}
+
+			public String getOperationName() {
+				return "mset";
+			}
+		}, false);
+		return "OK";
+	}
+
+	/**
+	 * 跨分片批量读对象, 每个分片组一次MGET, 各组并行
+	 *
+	 * @return 按keys的顺序, 不存在的key为null
+	 */
+	public List<Object> getObjects(List<String> keys) {
+		Map<String, Object> values = doShardBatch(keys, new ShardBatchCallBack<Object>() {
+
+			public Map<String, Object> doBiz(Jedis j, List<String> keys) {
+				byte[][] binaryKeys = new byte[keys.size()][];
+				for (int i = 0; i < keys.size(); i++) {
+					binaryKeys[i] = SafeEncoder.encode(keys.get(i));
+				}
+				List<byte[]> list = j.mget(binaryKeys);
+				Map<String, Object> result = new HashMap<String, Object>();
+				for (int i = 0; i < keys.size(); i++) {
+					result.put(keys.get(i), null == list.get(i) ? null : deserialize(list.get(i)));
+				}
+				return result;
+			}
+
+			public String getOperationName() {
+				return "getObjects";
+			}
+		}, true);
+		List<Object> result = new ArrayList<Object>(keys.size());
+		for (String key : keys) {
+			result.add(values.get(key));
+		}
+		return result;
 	}
 
 	public String set(final String key, final String value) {
@@ -51,7 +703,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public String get(final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.get(key);
@@ -77,20 +729,20 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Boolean exists(final String key) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doReadOperation(key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
 				return j.exists(key);
 			}
 
 			public String getOperationName() {
-				return "echo";
+				return "exists";
 			}
 		});
 	}
 
 	public String type(final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.type(key);
@@ -129,7 +781,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long ttl(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.ttl(key);
@@ -168,7 +820,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Boolean getbit(final String key, final long offset) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doReadOperation(key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
 				return j.getbit(key, offset);
@@ -194,7 +846,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public String getrange(final String key, final long startOffset, final long endOffset) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.getrange(key, startOffset, endOffset);
@@ -311,7 +963,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public String substr(final String key, final int start, final int end) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.substr(key, start, end);
@@ -337,7 +989,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public String hget(final String key, final String field) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.hget(key, field);
@@ -376,7 +1028,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public List<String> hmget(final String key, final String... fields) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doReadOperation(key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
 				return j.hmget(key, fields);
@@ -402,7 +1054,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Boolean hexists(final String key, final String field) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doReadOperation(key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
 				return j.hexists(key, field);
@@ -441,7 +1093,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long hlen(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.hlen(key);
@@ -454,7 +1106,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> hkeys(final String key) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.hkeys(key);
@@ -467,7 +1119,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public List<String> hvals(final String key) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doReadOperation(key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
 				return j.hvals(key);
@@ -480,7 +1132,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Map<String, String> hgetAll(final String key) {
-		return doOperation(key, new JedisCallBack<Map<String, String>>() {
+		return doReadOperation(key, new JedisCallBack<Map<String, String>>() {
 
 			public Map<String, String> doBiz(Jedis j) {
 				return j.hgetAll(key);
@@ -532,7 +1184,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long strlen(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.strlen(key);
@@ -584,7 +1236,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long llen(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.llen(key);
@@ -597,7 +1249,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public List<String> lrange(final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doReadOperation(key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
 				return j.lrange(key, start, end);
@@ -623,7 +1275,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public String lindex(final String key, final long index) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.lindex(key, index);
@@ -701,7 +1353,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> smembers(final String key) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.smembers(key);
@@ -740,7 +1392,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long scard(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.scard(key);
@@ -753,7 +1405,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Boolean sismember(final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doReadOperation(key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
 				return j.sismember(key, member);
@@ -766,7 +1418,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public String srandmember(final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doReadOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
 				return j.srandmember(key);
@@ -805,7 +1457,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrange(final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrange(key, start, end);
@@ -844,7 +1496,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long zrank(final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.zrank(key, member);
@@ -857,7 +1509,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long zrevrank(final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.zrevrank(key, member);
@@ -870,7 +1522,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrevrange(final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrevrange(key, start, end);
@@ -883,7 +1535,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrangeWithScores(final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrangeWithScores(key, start, end);
@@ -896,7 +1548,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrevrangeWithScores(final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrevrangeWithScores(key, start, end);
@@ -909,7 +1561,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long zcard(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.zcard(key);
@@ -922,7 +1574,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Double zscore(final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Double>() {
+		return doReadOperation(key, new JedisCallBack<Double>() {
 
 			public Double doBiz(Jedis j) {
 				return j.zscore(key, member);
@@ -961,7 +1613,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long zcount(final String key, final double min, final double max) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.zcount(key, min, max);
@@ -974,7 +1626,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Long zcount(final String key, final String min, final String max) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doReadOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
 				return j.zcount(key, min, max);
@@ -987,7 +1639,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrangeByScore(final String key, final double min, final double max) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrangeByScore(key, min, max);
@@ -1000,7 +1652,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrevrangeByScore(final String key, final double max, final double min) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrevrangeByScore(key, max, min);
@@ -1013,7 +1665,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrangeByScore(final String key, final double min, final double max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrangeByScore(key, min, max, offset, count);
@@ -1026,7 +1678,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrevrangeByScore(final String key, final double max, final double min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrevrangeByScore(key, max, min, offset, count);
@@ -1039,7 +1691,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final String key, final double min, final double max) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrangeByScoreWithScores(key, min, max);
@@ -1052,7 +1704,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final String key, final double max, final double min) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 
@@ -1066,7 +1718,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final String key, final double min, final double max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrangeByScoreWithScores(key, min, max, offset, count);
@@ -1079,7 +1731,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final String key, final double max, final double min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrevrangeByScoreWithScores(key, max, min, offset, count);
@@ -1092,7 +1744,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrangeByScore(final String key, final String min, final String max) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrangeByScore(key, min, max);
@@ -1105,7 +1757,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrevrangeByScore(final String key, final String max, final String min) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrevrangeByScore(key, max, min);
@@ -1118,7 +1770,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrangeByScore(final String key, final String min, final String max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrangeByScore(key, min, max, offset, count);
@@ -1131,7 +1783,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<String> zrevrangeByScore(final String key, final String max, final String min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doReadOperation(key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
 				return j.zrevrangeByScore(key, max, min, offset, count);
@@ -1144,7 +1796,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final String key, final String min, final String max) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrangeByScoreWithScores(key, min, max);
@@ -1157,7 +1809,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final String key, final String max, final String min) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrevrangeByScoreWithScores(key, max, min);
@@ -1170,7 +1822,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final String key, final String min, final String max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrangeByScoreWithScores(key, min, max, offset, count);
@@ -1183,7 +1835,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final String key, final String max, final String min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doReadOperation(key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
 				return j.zrevrangeByScoreWithScores(key, max, min, offset, count);
@@ -1266,7 +1918,7 @@ public class RedisShardedClient extends RedisBinaryClient implements RedisClient
 
 	public Object getObject(final String key) {
 
-		return doOperation(key, new JedisCallBack<Object>() {
+		return doReadOperation(key, new JedisCallBack<Object>() {
 
 			public Object doBiz(Jedis j) {
 				byte[] result = j.get(SafeEncoder.encode(key));
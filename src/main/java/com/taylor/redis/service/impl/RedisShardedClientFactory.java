@@ -9,6 +9,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.pool.impl.GenericObjectPool;
@@ -22,12 +25,25 @@ import com.taylor.redis.common.shard.ShardSplit;
 import com.taylor.redis.common.util.RedisMasterProber;
 import com.taylor.redis.common.util.RedisMasterProber.Prober;
 import com.taylor.redis.service.RedisClientFactory;
+import com.taylor.redis.service.impl.codec.RedisValueCodec;
+import com.taylor.redis.service.impl.codec.RedisValueCompressor;
+import com.taylor.redis.service.impl.codec.RedisValueSerializer;
+import com.taylor.redis.service.impl.monitor.RedisHotKeyDetector;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
+import com.taylor.redis.service.impl.replica.RedisHedgePolicy;
+import com.taylor.redis.service.impl.replica.RedisReadPolicy;
+import com.taylor.redis.service.impl.replica.RedisReadRouter;
+import com.taylor.redis.service.impl.replica.RedisTopologyMonitor;
 
 import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
 @Data
+@Log4j2
 public class RedisShardedClientFactory implements RedisClientFactory {
 	private int timeout = Protocol.DEFAULT_TIMEOUT;
 
@@ -57,6 +73,105 @@ public class RedisShardedClientFactory implements RedisClientFactory {
 
 	private byte whenExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_BLOCK;
 
+	/* 大于0时按该周期后台检测空闲连接, 并关闭testOnBorrow/testOnReturn, 借还时不再PING; 出错的连接由Jedis归还时剔除 */
+	private long validateIdleMillis = 0;
+
+	/* 启动时是否并行预热每个分组的连接池 */
+	private boolean warmUp = false;
+
+	/* 每个池预热的连接数, 小于等于0时取minIdle */
+	private int warmUpConnections = 0;
+
+	/* 最近一次预热耗时(ms) */
+	private long warmUpMillis;
+
+	/* 不为空时开启延迟统计, 并以该名字注册JMX */
+	private String metricsName;
+
+	private RedisMetrics metrics;
+
+	/* 热点key采样率, 每N次命令采样一次, 小于等于0时关闭热点探测 */
+	private int hotKeySampleRate = 100;
+
+	/* 每个维度保留的热点key数 */
+	private int hotKeyTopK = 20;
+
+	/* 热点key输出周期(秒), 每个周期重新统计 */
+	private long hotKeyReportSeconds = 60;
+
+	private RedisHotKeyDetector hotKeys;
+
+	/* 对象值的编码: java或kryo, 切换后旧格式的数据仍可读 */
+	private String codecType = "java";
+
+	/* kryo注册的类, 读写两端注册的类及顺序必须一致 */
+	private List<Class<?>> kryoClasses;
+
+	/* 自定义编码, 设置后忽略codecType */
+	private RedisValueCodec codec;
+
+	/* 超过该字节数的值压缩后写入, 小于等于0时不压缩(压缩过的值仍可读) */
+	private int compressThreshold = 0;
+
+	/* Deflate压缩级别 */
+	private int compressLevel = Deflater.BEST_SPEED;
+
+	/* 批量命令并行访问分片组的线程数, 0:与分片组数相同 */
+	private int batchThreads = 0;
+
+	private ExecutorService batchExecutor;
+
+	/* 只读命令的路由: master(只读主), prefer-replica(优先读从), round-robin(主从轮询), least-latency(延迟最低) */
+	private String readPolicy = "master";
+
+	/* 从节点连接出错后暂停读取的时间(ms) */
+	private long replicaDownMillis = 5000;
+
+	/* 从节点与主节点失联超过该秒数时改读主节点, 小于等于0时只看复制连接是否断开 */
+	private int replicaMaxLagSeconds = 10;
+
+	/* 检查从节点复制状态的周期(秒) */
+	private long replicaCheckSeconds = 5;
+
+	/* 节点延迟滑动平均的衰减时间(ms), least-latency按延迟和进行中的命令数随机二选一 */
+	private long replicaLatencyDecayMillis = 1000;
+
+	/* 从节点延迟超过同组其他节点中位数的倍数时暂时剔除, 小于等于0时不剔除 */
+	private double replicaEjectRatio = 3;
+
+	/* 延迟低于该值(us)的从节点不剔除 */
+	private long replicaEjectMinMicros = 2000;
+
+	/* 剔除的时间(ms) */
+	private long replicaEjectMillis = 30000;
+
+	private RedisReadRouter readRouter;
+
+	/* 是否对冲读: 读超过该组耗时p95仍未返回时, 向同组另一节点(主或从)再发一次, 取先返回的结果 */
+	private boolean hedgeReads = false;
+
+	/* 对冲请求最多占读请求的百分比 */
+	private double hedgeBudgetPercent = 5;
+
+	/* 对冲前至少等待的时间(us) */
+	private long hedgeMinDelayMicros = 1000;
+
+	/* 执行对冲请求的线程数 */
+	private int hedgeThreads = 8;
+
+	/* 对冲请求的排队上限, 线程和队列都满时不对冲 */
+	private int hedgeQueueSize = 64;
+
+	private RedisHedgePolicy hedgePolicy;
+
+	/* 重新探测各分片组主节点的周期(秒), 主从切换后自动改写新的主节点, 小于等于0时只在启动时探测 */
+	private long masterProbeSeconds = 5;
+
+	/* 切换主节点后旧连接池保留的时间(ms), 等借出的连接归还后再销毁 */
+	private long masterDrainMillis = 10000;
+
+	private RedisTopologyMonitor topologyMonitor;
+
 	private List<RedisShardInfo> shardInfos;
 
 	private List<RedisMasterSlaverGroup> groups;
@@ -109,6 +224,9 @@ public class RedisShardedClientFactory implements RedisClientFactory {
 				groups.add(future.get());
 			}
 			createClient(groups);
+			if (warmUp) {
+				warmUpPools();
+			}
 		} catch (Throwable e) {
 			throw new CommonRuntimeException("Initialize redis shard group failed", e);
 		} finally {
@@ -134,13 +252,151 @@ public class RedisShardedClientFactory implements RedisClientFactory {
 		poolConfig.setMinEvictableIdleTimeMillis(this.minEvictableIdleTimeMillis);
 		poolConfig.setSoftMinEvictableIdleTimeMillis(this.softMinEvictableIdleTimeMillis);
 		poolConfig.setLifo(this.lifo);
+		if (this.validateIdleMillis > 0) {
+			poolConfig.setTestOnBorrow(false);
+			poolConfig.setTestOnReturn(false);
+			poolConfig.setTestWhileIdle(true);
+			if (this.timeBetweenEvictionRunsMillis <= 0) {
+				poolConfig.setTimeBetweenEvictionRunsMillis(this.validateIdleMillis);
+			}
+		}
 
 		splitor = ShardSplit.getInstance(groups, poolConfig);
+		initShardPools(groups, poolConfig);
 		client = new RedisShardedClient(splitor);
+		if (metricsName != null) {
+			metrics = new RedisMetrics();
+			metrics.register(metricsName);
+			client.setMetrics(metrics);
+		}
+		RedisValueCompressor compressor = new RedisValueCompressor(this.compressThreshold, this.compressLevel);
+		compressor.setMetrics(metrics);
+		RedisValueSerializer serializer = RedisValueSerializer.create(this.codec, this.codecType, this.kryoClasses);
+		serializer.setCompressor(compressor);
+		client.setSerializer(serializer);
+		if (hotKeySampleRate > 0) {
+			hotKeys = new RedisHotKeyDetector(this.hotKeySampleRate, this.hotKeyTopK, this.hotKeyReportSeconds);
+			client.setHotKeys(hotKeys);
+		}
+		RedisReadPolicy policy = parseReadPolicy();
+		/* 对冲读需要同组的其他节点, 只读主节点时也建从节点连接池 */
+		if (policy != RedisReadPolicy.MASTER || hedgeReads) {
+			readRouter = new RedisReadRouter(groups, poolConfig, policy, this.replicaDownMillis, this.replicaMaxLagSeconds, this.replicaCheckSeconds,
+					this.replicaLatencyDecayMillis, this.validateIdleMillis);
+			readRouter.setEjectRatio(this.replicaEjectRatio);
+			readRouter.setEjectMinMicros(this.replicaEjectMinMicros);
+			readRouter.setEjectMillis(this.replicaEjectMillis);
+			readRouter.start();
+			client.setReadRouter(readRouter);
+		}
+		if (hedgeReads) {
+			hedgePolicy = new RedisHedgePolicy(this.hedgeBudgetPercent, this.hedgeMinDelayMicros, this.hedgeThreads, this.hedgeQueueSize);
+			if (metricsName != null) {
+				hedgePolicy.register(metricsName);
+			}
+			client.setHedgePolicy(hedgePolicy);
+		}
+		if (masterProbeSeconds > 0) {
+			topologyMonitor = new RedisTopologyMonitor(groups, poolConfig, this.masterProbeSeconds, this.masterDrainMillis, this.validateIdleMillis);
+			if (readRouter != null) {
+				topologyMonitor.addListener(readRouter);
+			}
+			if (metricsName != null) {
+				topologyMonitor.register(metricsName);
+			}
+			client.setTopologyMonitor(topologyMonitor);
+			topologyMonitor.start();
+		}
+		int threads = this.batchThreads > 0 ? this.batchThreads : groups.size();
+		if (threads > 1) {
+			batchExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+				private final AtomicInteger index = new AtomicInteger();
+
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "redis-shard-batch-" + index.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			client.setBatchExecutor(batchExecutor);
+		}
+	}
+
+	/**
+	 * ShardSplit用Jedis自带的工厂创建各组主节点的连接池, 借一个连接确认池对应的节点后改用RedisJedisFactory重建.
+	 * 确认不了的池(节点暂时连不上)保留原工厂, 借还校验仍按poolConfig
+	 */
+	private void initShardPools(List<RedisMasterSlaverGroup> groups, GenericObjectPoolConfig poolConfig) {
+		for (JedisPool pool : splitor.getAllShards()) {
+			RedisShardInfo master = null;
+			Jedis jedis = null;
+			try {
+				jedis = pool.getResource();
+				for (RedisMasterSlaverGroup group : groups) {
+					RedisShardInfo info = group.getMaster();
+					if (info != null && info.getHost().equals(jedis.getClient().getHost()) && info.getPort() == jedis.getClient().getPort()) {
+						master = info;
+						break;
+					}
+				}
+			} catch (JedisConnectionException e) {
+				log.warn("Connect redis shard failed, keep its default pool", e);
+			} finally {
+				if (jedis != null) {
+					jedis.close();
+				}
+			}
+			if (master != null) {
+				pool.initPool(poolConfig,
+						new RedisJedisFactory(master.getHost(), master.getPort(), master.getTimeout(), master.getPassword(), 0, this.validateIdleMillis));
+			}
+		}
+	}
+
+	private RedisReadPolicy parseReadPolicy() {
+		try {
+			return RedisReadPolicy.parse(this.readPolicy);
+		} catch (IllegalArgumentException e) {
+			throw new CommonRuntimeException("Unknown redis read policy " + this.readPolicy);
+		}
+	}
+
+	private void warmUpPools() {
+		int count = this.warmUpConnections > 0 ? this.warmUpConnections : this.minIdle;
+		/* 不超过池的容量, 否则借出会一直等待 */
+		count = Math.min(count, GenericObjectPoolConfig.DEFAULT_MAX_TOTAL);
+		if (this.maxIdle >= 0) {
+			count = Math.min(count, this.maxIdle);
+		}
+		RedisPoolWarmer warmer = new RedisPoolWarmer();
+		int index = 0;
+		for (JedisPool pool : splitor.getAllShards()) {
+			warmer.add("shard " + index++, pool, count);
+		}
+		warmUpMillis = warmer.warmUp();
 	}
 
 	public void destroy() throws Exception {
 		splitor.destoryAllResources();
+		if (metrics != null) {
+			metrics.unregister();
+		}
+		if (hotKeys != null) {
+			hotKeys.shutdown();
+		}
+		if (batchExecutor != null) {
+			batchExecutor.shutdown();
+		}
+		if (topologyMonitor != null) {
+			topologyMonitor.shutdown();
+		}
+		if (hedgePolicy != null) {
+			hedgePolicy.shutdown();
+		}
+		if (readRouter != null) {
+			readRouter.shutdown();
+		}
 		client = null;
 	}
 
@@ -1,10 +1,7 @@
 package com.taylor.redis.service.impl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -17,6 +14,11 @@ import com.taylor.redis.common.client.JedisCallBack;
 import com.taylor.redis.common.shard.RedisSimplePool;
 import com.taylor.redis.exception.RedisShardConnectException;
 import com.taylor.redis.service.RedisClientService;
+import com.taylor.redis.service.impl.codec.RedisValueCompressor;
+import com.taylor.redis.service.impl.codec.RedisValueSerializer;
+import com.taylor.redis.service.impl.invalidation.RedisInvalidationBus;
+import com.taylor.redis.service.impl.monitor.RedisHotKeyDetector;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
 
 import lombok.extern.log4j.Log4j2;
 import redis.clients.jedis.BinaryClient.LIST_POSITION;
@@ -35,6 +37,7 @@ import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.params.geo.GeoRadiusParam;
 import redis.clients.jedis.params.sortedset.ZAddParams;
 import redis.clients.jedis.params.sortedset.ZIncrByParams;
+import redis.clients.util.Pool;
 import redis.clients.util.SafeEncoder;
 
 @Log4j2
@@ -44,45 +47,267 @@ public class RedisSimpleClient implements RedisClientService {
 		this.redisPool = redisPool;
 	}
 
+	public RedisSimpleClient(RedisSimplePool redisPool, RedisDBPools dbPools) {
+		this.redisPool = redisPool;
+		this.dbPools = dbPools;
+	}
+
+	public RedisSimpleClient(Pool<Jedis> defaultPool, RedisDBPools dbPools) {
+		this.defaultPool = defaultPool;
+		this.dbPools = dbPools;
+	}
+
 	public RedisSimpleClient() {
 
 	}
 
 	private RedisSimplePool redisPool;
 
+	/* 0库的连接池(如RedisDBPool), 不为空时代替redisPool */
+	private Pool<Jedis> defaultPool;
+
+	/* 按库划分的连接池, 为空时走默认连接池并在需要时SELECT */
+	private RedisDBPools dbPools;
+
+	/* 自动合并管道, 为空时不合并 */
+	private RedisAutoPipeline autoPipeline;
+
+	/* 延迟统计, 为空时不统计 */
+	private RedisMetrics metrics;
+
+	/* 热点key探测, 为空时不探测 */
+	private RedisHotKeyDetector hotKeys;
+
+	/* 对象值的序列化, 默认Java序列化 */
+	private RedisValueSerializer serializer = new RedisValueSerializer();
+
+	/* 字符串值的压缩, 默认只解压不压缩 */
+	private RedisValueCompressor compressor = new RedisValueCompressor();
+
+	/* 本地缓存失效通知, 不为空时del后发出通知 */
+	private RedisInvalidationBus invalidationBus;
+
+	/* 批量命令占位的key, 不参与热点统计 */
+	static final String BATCH_KEY = "batch";
+
+	/* 有UNLINK(4.0+)时在后台释放内存, 没有时退回DEL */
+	private static final byte[] UNLINK_SCRIPT = SafeEncoder.encode("local ok, n = pcall(redis.call, 'unlink', unpack(KEYS)) if ok then return n end return redis.call('del', unpack(KEYS))");
+
+	/* 单次脚本最多带的key数, 受lua栈大小限制 */
+	private static final int DEL_BATCH_SIZE = 1000;
+
+	public void setAutoPipeline(RedisAutoPipeline autoPipeline) {
+		this.autoPipeline = autoPipeline;
+	}
+
+	public RedisMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(RedisMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public RedisValueSerializer getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(RedisValueSerializer serializer) {
+		this.serializer = serializer;
+	}
+
+	public RedisValueCompressor getCompressor() {
+		return compressor;
+	}
+
+	public void setCompressor(RedisValueCompressor compressor) {
+		this.compressor = compressor;
+	}
+
+	/**
+	 * 写入的字符串值, 超过阈值时压缩
+	 */
+	byte[] encodeValue(String value) {
+		return encodeBytes(SafeEncoder.encode(value));
+	}
+
+	/**
+	 * 读出的字符串值, 压缩过的透明解压
+	 */
+	String decodeValue(byte[] value) {
+		return null == value ? null : SafeEncoder.encode(decodeBytes(value));
+	}
+
+	/**
+	 * 按字节操作值的命令(append/setrange/getrange/substr/strlen)对压缩过的值结果不对, 开启压缩时拒绝
+	 */
+	void checkRawValueCommand(String operation) {
+		if (compressor.isEnabled()) {
+			throw new CommonRuntimeException(operation + " is not supported when value compression is enabled");
+		}
+	}
+
+	byte[] encodeBytes(byte[] value) {
+		return compressor.compress(value);
+	}
+
+	byte[] decodeBytes(byte[] value) {
+		return null == value ? null : compressor.decompress(value);
+	}
+
+	public RedisHotKeyDetector getHotKeys() {
+		return hotKeys;
+	}
+
+	public void setHotKeys(RedisHotKeyDetector hotKeys) {
+		this.hotKeys = hotKeys;
+	}
+
+	public RedisInvalidationBus getInvalidationBus() {
+		return invalidationBus;
+	}
+
+	public void setInvalidationBus(RedisInvalidationBus invalidationBus) {
+		this.invalidationBus = invalidationBus;
+	}
+
+	/**
+	 * 删除完成后通知本地缓存失效
+	 */
+	protected void publishInvalidation(int DBIndex, String key) {
+		if (null != invalidationBus) {
+			invalidationBus.publish(DBIndex, key);
+		}
+	}
+
+	/**
+	 * 采样记录热点key, 按命令和库分别统计
+	 */
+	void recordHotKey(int DBIndex, String key, String operation) {
+		if (null != hotKeys && hotKeys.sample()) {
+			recordSampledHotKey(DBIndex, key, operation);
+		}
+	}
+
+	private void recordSampledHotKey(int DBIndex, String key, String operation) {
+		if (!BATCH_KEY.equals(key)) {
+			hotKeys.record(key, operation, DBIndex == RedisAutoPipeline.DEFAULT_DB ? "default" : "DB " + DBIndex);
+		}
+	}
+
 	public <E> E doOperation(String key, JedisCallBack<E> callback) {
 		return this.doOperation(SafeEncoder.encode(key), callback);
 	}
 
 	public <E> E doOperation(byte[] key, JedisCallBack<E> callback) {
+		if (null != hotKeys && hotKeys.sample()) {
+			recordSampledHotKey(RedisAutoPipeline.DEFAULT_DB, SafeEncoder.encode(key), callback.getOperationName());
+		}
+		Jedis jedis = null;
+		boolean broken = false;
+		long start = null == metrics ? 0 : System.nanoTime();
+		try {
+			jedis = null != defaultPool ? defaultPool.getResource() : redisPool.getResource();
+			if (null != metrics) {
+				long borrowed = System.nanoTime();
+				metrics.recordBorrow("default", borrowed - start);
+				start = borrowed;
+			}
+			E rs = callback.doBiz(jedis);
+			if (null != metrics) {
+				metrics.recordCommand(callback.getOperationName(), System.nanoTime() - start);
+			}
+			return rs;
+		} catch (JedisConnectionException e) {
+			log.error("jedis connection Exception", e);
+			broken = true;
+			throw new RedisShardConnectException("Faild when execute operation  " + callback.getOperationName(), e);
+		} catch (Exception e1) {
+			log.error("Do operation failed for key :=" + key, e1);
+			throw new CommonRuntimeException("Do operation failed for key :=" + key, e1);
+		} finally {
+			if (null != jedis) {
+				release(defaultPool, jedis, broken);
+			}
+		}
+	}
+
+	public <E> E doOperation(int DBIndex, String key, JedisCallBack<E> callback) {
+		recordHotKey(DBIndex, key, callback.getOperationName());
+		Pool<Jedis> dbPool = null == dbPools ? null : dbPools.getPool(DBIndex);
 		Jedis jedis = null;
+		boolean broken = false;
+		long start = null == metrics ? 0 : System.nanoTime();
 		try {
-			jedis = redisPool.getResource();
+			if (null != dbPool) {
+				jedis = dbPool.getResource();
+			} else {
+				jedis = null != defaultPool ? defaultPool.getResource() : redisPool.getResource();
+			}
+			if (null != metrics) {
+				long borrowed = System.nanoTime();
+				metrics.recordBorrow(null != dbPool ? "DB " + DBIndex : "default", borrowed - start);
+				start = borrowed;
+			}
+			/*
+			 * 默认连接池借出时已切回0库(activateObject), 这里只对0库省掉SELECT, 其他库每次都要SELECT;
+			 * 要省掉其他库的SELECT需在dbPoolSizes中为该库配置独立连接池
+			 */
+			if (null == dbPool && jedis.getDB() != DBIndex) {
+				jedis.select(DBIndex);
+			}
 			E rs = callback.doBiz(jedis);
+			if (null != metrics) {
+				metrics.recordCommand(callback.getOperationName(), System.nanoTime() - start);
+			}
 			return rs;
 		} catch (JedisConnectionException e) {
 			log.error("jedis connection Exception", e);
+			broken = true;
 			throw new RedisShardConnectException("Faild when execute operation  " + callback.getOperationName(), e);
 		} catch (Exception e1) {
 			log.error("Do operation failed for key :=" + key, e1);
 			throw new CommonRuntimeException("Do operation failed for key :=" + key, e1);
 		} finally {
-			if (null != redisPool && null != jedis)
-				redisPool.returnResource(jedis);
+			if (null != jedis) {
+				release(null != dbPool ? dbPool : defaultPool, jedis, broken);
+			}
+		}
+	}
+
+	/**
+	 * 归还连接. 连接出错时库连接池和defaultPool直接销毁该连接;
+	 * redisPool只提供returnResource, 先断开socket再归还, 避免下个调用读到残留的回复, 下次使用时Jedis会重连并重新AUTH/SELECT
+	 */
+	private void release(Pool<Jedis> pool, Jedis jedis, boolean broken) {
+		if (null != pool) {
+			if (broken) {
+				pool.returnBrokenResource(jedis);
+			} else {
+				pool.returnResource(jedis);
+			}
+		} else if (null != redisPool) {
+			if (broken) {
+				try {
+					jedis.disconnect();
+				} catch (Exception e) {
+					log.debug("Disconnect broken jedis failed", e);
+				}
+			}
+			redisPool.returnResource(jedis);
 		}
 	}
 
 	public String setBatch(final int DBIndex, final Map<String, String> values) {
-		return doOperation("batch", new JedisCallBack<String>() {
+		return doOperation(DBIndex, BATCH_KEY, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				Pipeline p = j.pipelined();
 				Set<String> keys = values.keySet();
 				Iterator<String> iterator = keys.iterator();
 				while (iterator.hasNext()) {
 					String key = iterator.next();
-					p.set(key, values.get(key));
+					p.set(SafeEncoder.encode(key), encodeValue(values.get(key)));
 				}
 				p.sync();
 				return values.toString();
@@ -94,23 +319,133 @@ public class RedisSimpleClient implements RedisClientService {
 		});
 	}
 
+	/**
+	 * 批量写入并设置过期时间(秒), 一次管道发送
+	 */
+	public String setBatch(final int DBIndex, final Map<String, String> values, final int seconds) {
+		return doOperation(DBIndex, BATCH_KEY, new JedisCallBack<String>() {
+
+			public String doBiz(Jedis j) {
+				Pipeline p = j.pipelined();
+				for (Entry<String, String> entry : values.entrySet()) {
+					p.setex(SafeEncoder.encode(entry.getKey()), seconds, encodeValue(entry.getValue()));
+				}
+				p.sync();
+				return values.toString();
+			}
+
+			public String getOperationName() {
+				return "setBatch";
+			}
+		});
+	}
+
+	/**
+	 * 批量写入原始字节, seconds小于等于0时不过期, 一次管道发送
+	 */
+	public String setBatchBytes(final int DBIndex, final Map<String, byte[]> values, final int seconds) {
+		return doOperation(DBIndex, BATCH_KEY, new JedisCallBack<String>() {
+
+			public String doBiz(Jedis j) {
+				Pipeline p = j.pipelined();
+				for (Entry<String, byte[]> entry : values.entrySet()) {
+					if (seconds > 0) {
+						p.setex(SafeEncoder.encode(entry.getKey()), seconds, encodeBytes(entry.getValue()));
+					} else {
+						p.set(SafeEncoder.encode(entry.getKey()), encodeBytes(entry.getValue()));
+					}
+				}
+				p.sync();
+				return "OK";
+			}
+
+			public String getOperationName() {
+				return "setBatch";
+			}
+		});
+	}
+
+	/**
+	 * 批量读出原始字节(已解压), 未缓存的key值为null
+	 */
+	public Map<String, byte[]> getBatchBytes(final int DBIndex, final List<String> keys) {
+		return doOperation(DBIndex, BATCH_KEY, new JedisCallBack<Map<String, byte[]>>() {
+
+			public Map<String, byte[]> doBiz(Jedis j) {
+				Map<String, Response<byte[]>> responses = new HashMap<String, Response<byte[]>>();
+				Pipeline p = j.pipelined();
+				for (String key : keys) {
+					responses.put(key, p.get(SafeEncoder.encode(key)));
+				}
+				p.sync();
+				Map<String, byte[]> result = new HashMap<String, byte[]>();
+				for (Entry<String, Response<byte[]>> entry : responses.entrySet()) {
+					result.put(entry.getKey(), decodeBytes(entry.getValue().get()));
+				}
+				return result;
+			}
+
+			public String getOperationName() {
+				return "getBatch";
+			}
+		});
+	}
+
+	/**
+	 * 批量删除, 全部key在一次管道中删除(UNLINK, 不支持时DEL)
+	 *
+	 * @return 删除的key数
+	 */
+	public Long delBatch(final int DBIndex, final List<String> keys) {
+		if (keys.isEmpty()) {
+			return 0L;
+		}
+		Long result = doOperation(DBIndex, BATCH_KEY, new JedisCallBack<Long>() {
+
+			public Long doBiz(Jedis j) {
+				List<Response<Object>> responses = new ArrayList<Response<Object>>();
+				Pipeline p = j.pipelined();
+				for (int from = 0; from < keys.size(); from += DEL_BATCH_SIZE) {
+					List<byte[]> batch = new ArrayList<byte[]>();
+					for (String key : keys.subList(from, Math.min(from + DEL_BATCH_SIZE, keys.size()))) {
+						batch.add(SafeEncoder.encode(key));
+					}
+					responses.add(p.eval(UNLINK_SCRIPT, batch, Collections.<byte[]> emptyList()));
+				}
+				p.sync();
+				long deleted = 0;
+				for (Response<Object> response : responses) {
+					deleted += (Long) response.get();
+				}
+				return deleted;
+			}
+
+			public String getOperationName() {
+				return "delBatch";
+			}
+		});
+		for (String key : keys) {
+			publishInvalidation(DBIndex, key);
+		}
+		return result;
+	}
+
 	public Map<String, String> getBatch(final int DBIndex, final List<String> keys) {
-		return doOperation("batch", new JedisCallBack<Map<String, String>>() {
+		return doOperation(DBIndex, BATCH_KEY, new JedisCallBack<Map<String, String>>() {
 
 			public Map<String, String> doBiz(Jedis j) {
 				Map<String, String> result = new HashMap<String, String>();
-				Map<String, Response<String>> resultR = new HashMap<String, Response<String>>();
-				j.select(DBIndex);
+				Map<String, Response<byte[]>> resultR = new HashMap<String, Response<byte[]>>();
 				Pipeline p = j.pipelined();
 				for (int i = 0; i < keys.size(); i++) {
-					resultR.put(keys.get(i), p.get(keys.get(i)));
+					resultR.put(keys.get(i), p.get(SafeEncoder.encode(keys.get(i))));
 				}
 				p.sync();
 				Set<String> sets = resultR.keySet();
 				Iterator<String> iterator = sets.iterator();
 				while (iterator.hasNext()) {
 					String key = iterator.next();
-					result.put(key, resultR.get(key).get());
+					result.put(key, decodeValue(resultR.get(key).get()));
 				}
 				return result;
 			}
@@ -122,10 +457,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String hsetBatch(final int DBIndex, final String key, final Map<String, String> values) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				Pipeline p = j.pipelined();
 				Set<String> keys = values.keySet();
 				Iterator<String> iterator = keys.iterator();
@@ -144,10 +478,13 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String set(final String key, final String value) {
+		if (null != autoPipeline) {
+			return autoPipeline.set(RedisAutoPipeline.DEFAULT_DB, key, value);
+		}
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				return j.set(key, value);
+				return j.set(SafeEncoder.encode(key), encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -157,10 +494,13 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String get(final String key) {
+		if (null != autoPipeline) {
+			return autoPipeline.get(RedisAutoPipeline.DEFAULT_DB, key);
+		}
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				return j.get(key);
+				return decodeValue(j.get(SafeEncoder.encode(key)));
 			}
 
 			public String getOperationName() {
@@ -170,6 +510,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean exists(final String key) {
+		if (null != autoPipeline) {
+			return autoPipeline.exists(RedisAutoPipeline.DEFAULT_DB, key);
+		}
 		return doOperation(key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
@@ -274,6 +617,7 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long setrange(final String key, final long offset, final String value) {
+		checkRawValueCommand("setrange");
 		return doOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
@@ -287,6 +631,7 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String getrange(final String key, final long startOffset, final long endOffset) {
+		checkRawValueCommand("getrange");
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
@@ -303,7 +648,7 @@ public class RedisSimpleClient implements RedisClientService {
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				return j.getSet(key, value);
+				return decodeValue(j.getSet(SafeEncoder.encode(key), encodeValue(value)));
 			}
 
 			public String getOperationName() {
@@ -316,7 +661,7 @@ public class RedisSimpleClient implements RedisClientService {
 		return doOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				return j.setnx(key, value);
+				return j.setnx(SafeEncoder.encode(key), encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -326,10 +671,13 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String setex(final String key, final int seconds, final String value) {
+		if (null != autoPipeline) {
+			return autoPipeline.setex(RedisAutoPipeline.DEFAULT_DB, key, seconds, value);
+		}
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				return j.setex(key, seconds, value);
+				return j.setex(SafeEncoder.encode(key), seconds, encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -378,6 +726,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long incr(final String key) {
+		if (null != autoPipeline) {
+			return autoPipeline.incr(RedisAutoPipeline.DEFAULT_DB, key);
+		}
 		return doOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
@@ -391,6 +742,7 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long append(final String key, final String value) {
+		checkRawValueCommand("append");
 		return doOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
@@ -404,6 +756,7 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String substr(final String key, final int start, final int end) {
+		checkRawValueCommand("substr");
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
@@ -417,6 +770,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long hset(final String key, final String field, final String value) {
+		if (null != autoPipeline) {
+			return autoPipeline.hset(RedisAutoPipeline.DEFAULT_DB, key, field, value);
+		}
 		return doOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
@@ -430,6 +786,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String hget(final String key, final String field) {
+		if (null != autoPipeline) {
+			return autoPipeline.hget(RedisAutoPipeline.DEFAULT_DB, key, field);
+		}
 		return doOperation(key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
@@ -508,16 +867,24 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long del(final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
-
-			public Long doBiz(Jedis j) {
-				return j.del(key);
-			}
+		Long result;
+		if (null != autoPipeline) {
+			result = autoPipeline.del(RedisAutoPipeline.DEFAULT_DB, key);
+		} else {
+			result = doOperation(key, new JedisCallBack<Long>() {
+
+				public Long doBiz(Jedis j) {
+					return j.del(key);
+				}
 
-			public String getOperationName() {
-				return "del";
-			}
-		});
+				public String getOperationName() {
+					return "del";
+				}
+			});
+		}
+		/* 默认库不区分库号 */
+		publishInvalidation(RedisAutoPipeline.DEFAULT_DB, key);
+		return result;
 	}
 
 	public Long hdel(final String key, final String... fields) {
@@ -625,6 +992,7 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long strlen(final String key) {
+		checkRawValueCommand("strlen");
 		return doOperation(key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
@@ -1391,11 +1759,13 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String set(final int DBIndex, final String key, final String value) {
-		return doOperation(key, new JedisCallBack<String>() {
+		if (null != autoPipeline) {
+			return autoPipeline.set(DBIndex, key, value);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.set(key, value);
+				return j.set(SafeEncoder.encode(key), encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -1405,11 +1775,13 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String set(final int DBIndex, final String key, final int seconds, final String value) {
-		return doOperation(key, new JedisCallBack<String>() {
+		if (null != autoPipeline) {
+			return autoPipeline.setex(DBIndex, key, seconds, value);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.setex(key, seconds, value);
+				return j.setex(SafeEncoder.encode(key), seconds, encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -1419,11 +1791,54 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String get(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		if (null != autoPipeline) {
+			return autoPipeline.get(DBIndex, key);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.get(key);
+				return decodeValue(j.get(SafeEncoder.encode(key)));
+			}
+
+			public String getOperationName() {
+				return "get";
+			}
+		});
+	}
+
+	/**
+	 * 写入原始字节, seconds小于等于0时不过期
+	 */
+	public String setBytes(final int DBIndex, final String key, final int seconds, final byte[] value) {
+		if (null != autoPipeline) {
+			return autoPipeline.setBytes(DBIndex, key, seconds, value);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
+
+			public String doBiz(Jedis j) {
+				if (seconds > 0) {
+					return j.setex(SafeEncoder.encode(key), seconds, encodeBytes(value));
+				}
+				return j.set(SafeEncoder.encode(key), encodeBytes(value));
+			}
+
+			public String getOperationName() {
+				return seconds > 0 ? "setex" : "set";
+			}
+		});
+	}
+
+	/**
+	 * 读出原始字节(已解压), 供调用方直接从字节流解析
+	 */
+	public byte[] getBytes(final int DBIndex, final String key) {
+		if (null != autoPipeline) {
+			return autoPipeline.getBytes(DBIndex, key);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<byte[]>() {
+
+			public byte[] doBiz(Jedis j) {
+				return decodeBytes(j.get(SafeEncoder.encode(key)));
 			}
 
 			public String getOperationName() {
@@ -1433,10 +1848,12 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean exists(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		if (null != autoPipeline) {
+			return autoPipeline.exists(DBIndex, key);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.exists(key);
 			}
 
@@ -1447,10 +1864,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String type(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.type(key);
 			}
 
@@ -1461,10 +1877,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long expire(final int DBIndex, final String key, final int seconds) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.expire(key, seconds);
 			}
 
@@ -1475,10 +1890,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long expireAt(final int DBIndex, final String key, final long unixTime) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.expireAt(key, unixTime);
 			}
 
@@ -1489,10 +1903,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long ttl(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.ttl(key);
 			}
 
@@ -1503,10 +1916,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean setbit(final int DBIndex, final String key, final long offset, final boolean value) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.setbit(key, offset, value);
 			}
 
@@ -1517,10 +1929,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean setbit(final int DBIndex, final String key, final long offset, final String value) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.setbit(SafeEncoder.encode(key), offset, SafeEncoder.encode(value));
 			}
 
@@ -1531,10 +1942,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean getbit(final int DBIndex, final String key, final long offset) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.getbit(key, offset);
 			}
 
@@ -1545,10 +1955,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long setrange(final int DBIndex, final String key, final long offset, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		checkRawValueCommand("setrange");
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.setrange(key, offset, value);
 			}
 
@@ -1559,10 +1969,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String getrange(final int DBIndex, final String key, final long startOffset, final long endOffset) {
-		return doOperation(key, new JedisCallBack<String>() {
+		checkRawValueCommand("getrange");
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.getrange(key, startOffset, endOffset);
 			}
 
@@ -1573,11 +1983,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String getSet(final int DBIndex, final String key, final String value) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.getSet(key, value);
+				return decodeValue(j.getSet(SafeEncoder.encode(key), encodeValue(value)));
 			}
 
 			public String getOperationName() {
@@ -1587,11 +1996,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long setnx(final int DBIndex, final String key, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.setnx(key, value);
+				return j.setnx(SafeEncoder.encode(key), encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -1601,11 +2009,13 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String setex(final int DBIndex, final String key, final int seconds, final String value) {
-		return doOperation(key, new JedisCallBack<String>() {
+		if (null != autoPipeline) {
+			return autoPipeline.setex(DBIndex, key, seconds, value);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.setex(key, seconds, value);
+				return j.setex(SafeEncoder.encode(key), seconds, encodeValue(value));
 			}
 
 			public String getOperationName() {
@@ -1615,10 +2025,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long decrBy(final int DBIndex, final String key, final long integer) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.decrBy(key, integer);
 			}
 
@@ -1629,10 +2038,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long decr(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.decr(key);
 			}
 
@@ -1643,10 +2051,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long incrBy(final int DBIndex, final String key, final long integer) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.incrBy(key, integer);
 			}
 
@@ -1657,10 +2064,12 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long incr(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		if (null != autoPipeline) {
+			return autoPipeline.incr(DBIndex, key);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.incr(key);
 			}
 
@@ -1671,10 +2080,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long append(final int DBIndex, final String key, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		checkRawValueCommand("append");
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.append(key, value);
 			}
 
@@ -1685,10 +2094,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String substr(final int DBIndex, final String key, final int start, final int end) {
-		return doOperation(key, new JedisCallBack<String>() {
+		checkRawValueCommand("substr");
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.substr(key, start, end);
 			}
 
@@ -1699,10 +2108,12 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long hset(final int DBIndex, final String key, final String field, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		if (null != autoPipeline) {
+			return autoPipeline.hset(DBIndex, key, field, value);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hset(key, field, value);
 			}
 
@@ -1713,10 +2124,12 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String hget(final int DBIndex, final String key, final String field) {
-		return doOperation(key, new JedisCallBack<String>() {
+		if (null != autoPipeline) {
+			return autoPipeline.hget(DBIndex, key, field);
+		}
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hget(key, field);
 			}
 
@@ -1727,10 +2140,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long hsetnx(final int DBIndex, final String key, final String field, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hsetnx(key, field, value);
 			}
 
@@ -1741,10 +2153,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String hmset(final int DBIndex, final String key, final Map<String, String> hash) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hmset(key, hash);
 			}
 
@@ -1755,10 +2166,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public List<String> hmget(final int DBIndex, final String key, final String... fields) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hmget(key, fields);
 			}
 
@@ -1769,10 +2179,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long hincrBy(final int DBIndex, final String key, final String field, final long value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hincrBy(key, field, value);
 			}
 
@@ -1783,10 +2192,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean hexists(final int DBIndex, final String key, final String field) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hexists(key, field);
 			}
 
@@ -1797,24 +2205,29 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long del(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
-
-			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
-				return j.del(key);
-			}
+		Long result;
+		if (null != autoPipeline) {
+			result = autoPipeline.del(DBIndex, key);
+		} else {
+			result = doOperation(DBIndex, key, new JedisCallBack<Long>() {
+
+				public Long doBiz(Jedis j) {
+					return j.del(key);
+				}
 
-			public String getOperationName() {
-				return "del";
-			}
-		});
+				public String getOperationName() {
+					return "del";
+				}
+			});
+		}
+		publishInvalidation(DBIndex, key);
+		return result;
 	}
 
 	public Long hdel(final int DBIndex, final String key, final String... fields) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hdel(key, fields);
 			}
 
@@ -1825,10 +2238,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long hlen(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hlen(key);
 			}
 
@@ -1839,10 +2251,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> hkeys(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hkeys(key);
 			}
 
@@ -1853,10 +2264,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public List<String> hvals(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hvals(key);
 			}
 
@@ -1867,10 +2277,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Map<String, String> hgetAll(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Map<String, String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Map<String, String>>() {
 
 			public Map<String, String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.hgetAll(key);
 			}
 
@@ -1881,10 +2290,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long rpush(final int DBIndex, final String key, final String... strings) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.rpush(key, strings);
 			}
 
@@ -1895,10 +2303,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long lpush(final int DBIndex, final String key, final String... strings) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lpush(key, strings);
 			}
 
@@ -1909,10 +2316,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long lpushx(final int DBIndex, final String key, final String string) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lpushx(key, string);
 			}
 
@@ -1923,10 +2329,10 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long strlen(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		checkRawValueCommand("strlen");
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.strlen(key);
 			}
 
@@ -1937,10 +2343,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long move(final int DBIndex, final String key, final int dbIndex) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.move(key, dbIndex);
 			}
 
@@ -1951,10 +2356,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long rpushx(final int DBIndex, final String key, final String string) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.rpushx(key, string);
 			}
 
@@ -1965,10 +2369,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long persist(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.persist(key);
 			}
 
@@ -1979,10 +2382,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long llen(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.llen(key);
 			}
 
@@ -1993,10 +2395,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public List<String> lrange(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lrange(key, start, end);
 			}
 
@@ -2007,10 +2408,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String ltrim(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.ltrim(key, start, end);
 			}
 
@@ -2021,10 +2421,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String lindex(final int DBIndex, final String key, final long index) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lindex(key, index);
 			}
 
@@ -2035,10 +2434,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String lset(final int DBIndex, final String key, final long index, final String value) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lset(key, index, value);
 			}
 
@@ -2049,10 +2447,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long lrem(final int DBIndex, final String key, final long count, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lrem(key, count, value);
 			}
 
@@ -2063,10 +2460,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String lpop(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.lpop(key);
 			}
 
@@ -2077,10 +2473,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String rpop(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.rpop(key);
 			}
 
@@ -2091,10 +2486,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long sadd(final int DBIndex, final String key, final String... members) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.sadd(key, members);
 			}
 
@@ -2105,10 +2499,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> smembers(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.smembers(key);
 			}
 
@@ -2119,10 +2512,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long srem(final int DBIndex, final String key, final String... members) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.srem(key, members);
 			}
 
@@ -2133,10 +2525,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String spop(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.spop(key);
 			}
 
@@ -2147,10 +2538,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long scard(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.scard(key);
 			}
 
@@ -2161,10 +2551,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Boolean sismember(final int DBIndex, final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Boolean>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Boolean>() {
 
 			public Boolean doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.sismember(key, member);
 			}
 
@@ -2175,10 +2564,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String srandmember(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.srandmember(key);
 			}
 
@@ -2189,10 +2577,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zadd(final int DBIndex, final String key, final double score, final String member) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zadd(key, score, member);
 			}
 
@@ -2203,10 +2590,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zadd(final int DBIndex, final String key, final Map<String, Double> scoreMembers) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zadd(key, scoreMembers);
 			}
 
@@ -2217,10 +2603,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrange(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrange(key, start, end);
 			}
 
@@ -2231,10 +2616,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zrem(final int DBIndex, final String key, final String... members) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrem(key, members);
 			}
 
@@ -2245,10 +2629,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Double zincrby(final int DBIndex, final String key, final double score, final String member) {
-		return doOperation(key, new JedisCallBack<Double>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Double>() {
 
 			public Double doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zincrby(key, score, member);
 			}
 
@@ -2259,10 +2642,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zrank(final int DBIndex, final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrank(key, member);
 			}
 
@@ -2273,10 +2655,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zrevrank(final int DBIndex, final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrank(key, member);
 			}
 
@@ -2287,10 +2668,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrevrange(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrange(key, start, end);
 			}
 
@@ -2301,10 +2681,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrangeWithScores(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeWithScores(key, start, end);
 			}
 
@@ -2315,10 +2694,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrevrangeWithScores(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeWithScores(key, start, end);
 			}
 
@@ -2329,10 +2707,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zcard(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zcard(key);
 			}
 
@@ -2343,10 +2720,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Double zscore(final int DBIndex, final String key, final String member) {
-		return doOperation(key, new JedisCallBack<Double>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Double>() {
 
 			public Double doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zscore(key, member);
 			}
 
@@ -2357,10 +2733,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public List<String> sort(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.sort(key);
 			}
 
@@ -2371,10 +2746,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public List<String> sort(final int DBIndex, final String key, final SortingParams sortingParameters) {
-		return doOperation(key, new JedisCallBack<List<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<List<String>>() {
 
 			public List<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.sort(key, sortingParameters);
 			}
 
@@ -2385,10 +2759,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zcount(final int DBIndex, final String key, final double min, final double max) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zcount(key, min, max);
 			}
 
@@ -2399,10 +2772,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zcount(final int DBIndex, final String key, final String min, final String max) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zcount(key, min, max);
 			}
 
@@ -2413,10 +2785,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrangeByScore(final int DBIndex, final String key, final double min, final double max) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScore(key, min, max);
 			}
 
@@ -2427,10 +2798,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrevrangeByScore(final int DBIndex, final String key, final double max, final double min) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScore(key, max, min);
 			}
 
@@ -2441,10 +2811,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrangeByScore(final int DBIndex, final String key, final double min, final double max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScore(key, min, max, offset, count);
 			}
 
@@ -2455,10 +2824,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrevrangeByScore(final int DBIndex, final String key, final double max, final double min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScore(key, max, min, offset, count);
 			}
 
@@ -2469,10 +2837,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final int DBIndex, final String key, final double min, final double max) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScoreWithScores(key, min, max);
 			}
 
@@ -2483,10 +2850,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final int DBIndex, final String key, final double max, final double min) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 
 				return j.zrevrangeByScoreWithScores(key, max, min);
 			}
@@ -2498,10 +2864,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final int DBIndex, final String key, final double min, final double max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScoreWithScores(key, min, max, offset, count);
 			}
 
@@ -2512,10 +2877,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final int DBIndex, final String key, final double max, final double min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScoreWithScores(key, max, min, offset, count);
 			}
 
@@ -2526,10 +2890,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrangeByScore(final int DBIndex, final String key, final String min, final String max) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScore(key, min, max);
 			}
 
@@ -2540,10 +2903,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrevrangeByScore(final int DBIndex, final String key, final String max, final String min) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScore(key, max, min);
 			}
 
@@ -2554,10 +2916,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrangeByScore(final int DBIndex, final String key, final String min, final String max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScore(key, min, max, offset, count);
 			}
 
@@ -2568,10 +2929,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<String> zrevrangeByScore(final int DBIndex, final String key, final String max, final String min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<String>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<String>>() {
 
 			public Set<String> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScore(key, max, min, offset, count);
 			}
 
@@ -2582,10 +2942,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final int DBIndex, final String key, final String min, final String max) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScoreWithScores(key, min, max);
 			}
 
@@ -2596,10 +2955,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final int DBIndex, final String key, final String max, final String min) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScoreWithScores(key, max, min);
 			}
 
@@ -2610,10 +2968,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrangeByScoreWithScores(final int DBIndex, final String key, final String min, final String max, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrangeByScoreWithScores(key, min, max, offset, count);
 			}
 
@@ -2624,10 +2981,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Set<Tuple> zrevrangeByScoreWithScores(final int DBIndex, final String key, final String max, final String min, final int offset, final int count) {
-		return doOperation(key, new JedisCallBack<Set<Tuple>>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Set<Tuple>>() {
 
 			public Set<Tuple> doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zrevrangeByScoreWithScores(key, max, min, offset, count);
 			}
 
@@ -2638,10 +2994,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zremrangeByRank(final int DBIndex, final String key, final long start, final long end) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zremrangeByRank(key, start, end);
 			}
 
@@ -2652,10 +3007,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zremrangeByScore(final int DBIndex, final String key, final double start, final double end) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zremrangeByScore(key, start, end);
 			}
 
@@ -2666,10 +3020,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long zremrangeByScore(final int DBIndex, final String key, final String start, final String end) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.zremrangeByScore(key, start, end);
 			}
 
@@ -2680,10 +3033,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public Long linsert(final int DBIndex, final String key, final LIST_POSITION where, final String pivot, final String value) {
-		return doOperation(key, new JedisCallBack<Long>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Long>() {
 
 			public Long doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.linsert(key, where, pivot, value);
 			}
 
@@ -2698,10 +3050,9 @@ public class RedisSimpleClient implements RedisClientService {
 	 */
 	public String set(final int DBIndex, final String key, final Object value) {
 
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				byte[] byteValue = serialize(value);
 				return j.set(SafeEncoder.encode(key), byteValue);
 			}
@@ -2715,10 +3066,9 @@ public class RedisSimpleClient implements RedisClientService {
 
 	public String set(final int DBIndex, final String key, final int seconds, final Object value) {
 
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				byte[] byteValue = serialize(value);
 				return j.setex(SafeEncoder.encode(key), seconds, byteValue);
 			}
@@ -2730,12 +3080,36 @@ public class RedisSimpleClient implements RedisClientService {
 
 	}
 
+	/**
+	 * 批量写入对象, seconds小于等于0时不过期, 一次管道发送
+	 */
+	public String setBatchObjects(final int DBIndex, final Map<String, Object> values, final int seconds) {
+		return doOperation(DBIndex, BATCH_KEY, new JedisCallBack<String>() {
+
+			public String doBiz(Jedis j) {
+				Pipeline p = j.pipelined();
+				for (Entry<String, Object> entry : values.entrySet()) {
+					if (seconds > 0) {
+						p.setex(SafeEncoder.encode(entry.getKey()), seconds, serialize(entry.getValue()));
+					} else {
+						p.set(SafeEncoder.encode(entry.getKey()), serialize(entry.getValue()));
+					}
+				}
+				p.sync();
+				return "OK";
+			}
+
+			public String getOperationName() {
+				return "setBatch";
+			}
+		});
+	}
+
 	public Object getObject(final int DBIndex, final String key) {
 
-		return doOperation(key, new JedisCallBack<Object>() {
+		return doOperation(DBIndex, key, new JedisCallBack<Object>() {
 
 			public Object doBiz(Jedis j) {
-				j.select(DBIndex);
 				byte[] result = j.get(SafeEncoder.encode(key));
 				Object object = deserialize(result);
 				return object;
@@ -2748,11 +3122,39 @@ public class RedisSimpleClient implements RedisClientService {
 
 	}
 
+	/**
+	 * SET带NX|XX和EX|PX参数, 可用作带租期的锁
+	 */
+	public String set(final int DBIndex, final String key, final String value, final String nxxx, final String expx, final long time) {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
+
+			public String doBiz(Jedis j) {
+				return j.set(SafeEncoder.encode(key), encodeValue(value), SafeEncoder.encode(nxxx), SafeEncoder.encode(expx), time);
+			}
+
+			public String getOperationName() {
+				return "set";
+			}
+		});
+	}
+
+	public Object eval(final int DBIndex, final String script, final List<String> keys, final List<String> args) {
+		return doOperation(DBIndex, keys.isEmpty() ? script : keys.get(0), new JedisCallBack<Object>() {
+
+			public Object doBiz(Jedis j) {
+				return j.eval(script, keys, args);
+			}
+
+			public String getOperationName() {
+				return "eval";
+			}
+		});
+	}
+
 	public String info(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.info(key);
 			}
 
@@ -2764,10 +3166,9 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	public String echo(final int DBIndex, final String key) {
-		return doOperation(key, new JedisCallBack<String>() {
+		return doOperation(DBIndex, key, new JedisCallBack<String>() {
 
 			public String doBiz(Jedis j) {
-				j.select(DBIndex);
 				return j.echo(key);
 			}
 
@@ -2916,21 +3317,7 @@ public class RedisSimpleClient implements RedisClientService {
 	}
 
 	protected byte[] serialize(Object o) {
-		if (o == null) {
-			return new byte[0];
-		}
-		byte[] rv = null;
-		try {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			ObjectOutputStream os = new ObjectOutputStream(bos);
-			os.writeObject(o);
-			os.close();
-			bos.close();
-			rv = bos.toByteArray();
-		} catch (IOException e) {
-			throw new IllegalArgumentException("Non-serializable object", e);
-		}
-		return rv;
+		return serializer.serialize(o);
 	}
 
 	/**
@@ -2938,26 +3325,9 @@ public class RedisSimpleClient implements RedisClientService {
 	 *
 	 * @param in
 	 * @return
-	 * @see bjf :
-	 *      406@/rigel-tcom2/modules/tcom-cache/src/main/java/com/baidu/rigel
-	 *      /service/cache/redis/RedisClient.java
 	 */
 	protected Object deserialize(byte[] in) {
-		Object rv = null;
-		try {
-			if (in != null) {
-				ByteArrayInputStream bis = new ByteArrayInputStream(in);
-				ObjectInputStream is = new ObjectInputStream(bis);
-				rv = is.readObject();
-				is.close();
-				bis.close();
-			}
-		} catch (IOException e) {
-			log.warn("Caught IOException decoding %d bytes of data", e);
-		} catch (ClassNotFoundException e) {
-			log.warn("Caught CNFE decoding %d bytes of data", e);
-		}
-		return rv;
+		return serializer.deserialize(in);
 	}
 
 	@Override
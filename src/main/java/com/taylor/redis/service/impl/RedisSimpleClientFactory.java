@@ -1,11 +1,23 @@
 package com.taylor.redis.service.impl;
 
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import javax.jms.ConnectionFactory;
+
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
 import com.taylor.redis.common.client.RedisSimpleClientInfo;
-import com.taylor.redis.common.shard.RedisSimplePool;
 import com.taylor.redis.service.RedisClientFactory;
+import com.taylor.redis.service.impl.codec.RedisValueCodec;
+import com.taylor.redis.service.impl.codec.RedisValueCompressor;
+import com.taylor.redis.service.impl.codec.RedisValueSerializer;
+import com.taylor.redis.service.impl.invalidation.RedisInvalidationBus;
+import com.taylor.redis.service.impl.monitor.RedisHotKeyDetector;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
+import com.taylor.redis.service.impl.netty.RedisPipelineTransport;
 
 import lombok.Data;
 import redis.clients.jedis.Protocol;
@@ -41,9 +53,95 @@ public class RedisSimpleClientFactory implements RedisClientFactory {
 
 	private byte whenExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_BLOCK;
 
+	/* 大于0时按该周期后台检测空闲连接, 并关闭testOnBorrow/testOnReturn, 借还时不再PING; 出错的连接归还时直接销毁 */
+	private long validateIdleMillis = 0;
+
 	private RedisSimpleClientInfo redisClientInfo;
 
-	private RedisSimplePool redisPool;
+	private String password;
+
+	/* 是否为每个逻辑库单独建连接池, 避免每次调用前SELECT.
+	 * 开启后每个用到的库各有一个池, 到服务端的连接数最多为 maxActive + 用到的库数 * dbMaxActive, 开启前按库数核算服务端maxclients */
+	private boolean dbPoolEnabled = false;
+
+	/* 单个库连接池的最大连接数, 小于等于0时与maxActive一致 */
+	private int dbMaxActive = 0;
+
+	/* 单独指定大小的库, <DBIndex, maxActive> */
+	private Map<Integer, Integer> dbPoolSizes;
+
+	/* 每个库的多路复用长连接数, 大于0时常用命令改走netty长连接 */
+	private int multiplexConnections = 0;
+
+	/* 是否把并发的单key命令自动合并成管道 */
+	private boolean autoPipeline = false;
+
+	/* 自动合并的等待窗口, 微秒 */
+	private long autoPipelineWindowMicros = 100;
+
+	/* 自动合并时单次管道的最大命令数 */
+	private int autoPipelineMaxBatch = 128;
+
+	/* 启动时是否并行预热连接池 */
+	private boolean warmUp = false;
+
+	/* 每个池预热的连接数, 小于等于0时取minIdle */
+	private int warmUpConnections = 0;
+
+	/* 需要预热的库, 开启dbPoolEnabled时预先建好这些库的连接池 */
+	private List<Integer> warmUpDBs;
+
+	/* 最近一次预热耗时(ms) */
+	private long warmUpMillis;
+
+	/* 不为空时开启延迟统计, 并以该名字注册JMX */
+	private String metricsName;
+
+	private RedisMetrics metrics;
+
+	/* 热点key采样率, 每N次命令采样一次, 小于等于0时关闭热点探测 */
+	private int hotKeySampleRate = 100;
+
+	/* 每个维度保留的热点key数 */
+	private int hotKeyTopK = 20;
+
+	/* 热点key输出周期(秒), 每个周期重新统计 */
+	private long hotKeyReportSeconds = 60;
+
+	private RedisHotKeyDetector hotKeys;
+
+	/* 对象值的编码: java或kryo, 切换后旧格式的数据仍可读 */
+	private String codecType = "java";
+
+	/* kryo注册的类, 读写两端注册的类及顺序必须一致 */
+	private List<Class<?>> kryoClasses;
+
+	/* 自定义编码, 设置后忽略codecType */
+	private RedisValueCodec codec;
+
+	/* 超过该字节数的值压缩后写入, 小于等于0时不压缩(压缩过的值仍可读); 开启后append/setrange/getrange/substr/strlen会抛异常 */
+	private int compressThreshold = 0;
+
+	/* Deflate压缩级别 */
+	private int compressLevel = Deflater.BEST_SPEED;
+
+	/* JMS连接工厂(如activemq), 不为空时开启跨节点的本地缓存失效通知 */
+	private ConnectionFactory invalidationConnectionFactory;
+
+	/* 失效通知的topic */
+	private String invalidationTopic = "redis.cache.invalidation";
+
+	/* 失效通知合并发送的间隔(ms) */
+	private long invalidationBatchMillis = 5;
+
+	private RedisInvalidationBus invalidationBus;
+
+	/* 0库的连接池 */
+	private RedisDBPool redisPool;
+
+	private RedisDBPools dbPools;
+
+	private RedisPipelineTransport transport;
 
 	private RedisSimpleClient redisClient;
 
@@ -63,19 +161,116 @@ public class RedisSimpleClientFactory implements RedisClientFactory {
 		poolConfig.setMinEvictableIdleTimeMillis(this.minEvictableIdleTimeMillis);
 		poolConfig.setSoftMinEvictableIdleTimeMillis(this.softMinEvictableIdleTimeMillis);
 		poolConfig.setLifo(this.lifo);
+		if (this.validateIdleMillis > 0) {
+			poolConfig.setTestOnBorrow(false);
+			poolConfig.setTestOnReturn(false);
+			poolConfig.setTestWhileIdle(true);
+			if (this.timeBetweenEvictionRunsMillis <= 0) {
+				poolConfig.setTimeBetweenEvictionRunsMillis(this.validateIdleMillis);
+			}
+		}
+
+		redisPool = new RedisDBPool(poolConfig,
+				new RedisJedisFactory(redisClientInfo.getHost(), redisClientInfo.getPort(), this.timeout, this.password, 0, this.validateIdleMillis));
+		if (dbPoolEnabled) {
+			GenericObjectPoolConfig dbPoolConfig = poolConfig.clone();
+			if (this.dbMaxActive > 0) {
+				dbPoolConfig.setMaxTotal(this.dbMaxActive);
+			}
+			dbPools = new RedisDBPools(redisClientInfo, dbPoolConfig, this.timeout, this.password, this.validateIdleMillis, this.dbPoolSizes);
+		}
+		if (multiplexConnections > 0) {
+			transport = new RedisPipelineTransport(redisClientInfo.getHost(), redisClientInfo.getPort(), this.timeout, this.password, this.multiplexConnections);
+			redisClient = new RedisMultiplexedClient(redisPool, dbPools, transport);
+		} else {
+			redisClient = new RedisSimpleClient(redisPool, dbPools);
+			if (autoPipeline) {
+				redisClient.setAutoPipeline(new RedisAutoPipeline(redisClient, this.autoPipelineWindowMicros, this.autoPipelineMaxBatch));
+			}
+		}
+		if (metricsName != null) {
+			metrics = new RedisMetrics();
+			metrics.register(metricsName);
+			redisClient.setMetrics(metrics);
+			if (transport != null) {
+				transport.setMetrics(metrics);
+			}
+		}
+		RedisValueCompressor compressor = new RedisValueCompressor(this.compressThreshold, this.compressLevel);
+		compressor.setMetrics(metrics);
+		RedisValueSerializer serializer = RedisValueSerializer.create(this.codec, this.codecType, this.kryoClasses);
+		serializer.setCompressor(compressor);
+		redisClient.setSerializer(serializer);
+		redisClient.setCompressor(compressor);
+		if (hotKeySampleRate > 0) {
+			hotKeys = new RedisHotKeyDetector(this.hotKeySampleRate, this.hotKeyTopK, this.hotKeyReportSeconds);
+			redisClient.setHotKeys(hotKeys);
+			if (transport != null) {
+				transport.setHotKeys(hotKeys);
+			}
+		}
+		if (invalidationConnectionFactory != null) {
+			invalidationBus = new RedisInvalidationBus(this.invalidationConnectionFactory, this.invalidationTopic, this.invalidationBatchMillis);
+			invalidationBus.start();
+			redisClient.setInvalidationBus(invalidationBus);
+		}
+	}
 
-		redisPool = new RedisSimplePool(redisClientInfo, poolConfig);
-		redisClient = new RedisSimpleClient(redisPool);
+	private void warmUpPools() {
+		int count = this.warmUpConnections > 0 ? this.warmUpConnections : this.minIdle;
+		/* 不超过池的容量, 否则借出会一直等待 */
+		count = Math.min(count, this.maxActive);
+		if (this.maxIdle >= 0) {
+			count = Math.min(count, this.maxIdle);
+		}
+		RedisPoolWarmer warmer = new RedisPoolWarmer();
+		warmer.add("default", redisPool, count);
+		if (warmUpDBs != null) {
+			for (Integer DBIndex : warmUpDBs) {
+				if (dbPools != null) {
+					int dbCount = count;
+					if (this.dbMaxActive > 0) {
+						dbCount = Math.min(dbCount, this.dbMaxActive);
+					}
+					if (dbPoolSizes != null && dbPoolSizes.get(DBIndex) != null) {
+						dbCount = Math.min(dbCount, dbPoolSizes.get(DBIndex));
+					}
+					warmer.add("DB " + DBIndex, dbPools.getPool(DBIndex), dbCount);
+				}
+				if (transport != null) {
+					transport.warmUp(DBIndex);
+				}
+			}
+		}
+		warmUpMillis = warmer.warmUp();
 	}
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		createJedisPool(redisClientInfo);
+		if (warmUp) {
+			warmUpPools();
+		}
 	}
 
 	@Override
 	public void destroy() throws Exception {
-		redisPool.destoryAllResources();
+		redisPool.destroy();
+		if (dbPools != null) {
+			dbPools.destoryAllResources();
+		}
+		if (transport != null) {
+			transport.destroy();
+		}
+		if (metrics != null) {
+			metrics.unregister();
+		}
+		if (hotKeys != null) {
+			hotKeys.shutdown();
+		}
+		if (invalidationBus != null) {
+			invalidationBus.shutdown();
+		}
 		redisClientInfo = null;
 	}
 
@@ -0,0 +1,28 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Java序列化, 与历史写入的数据格式一致
+ */
+public class RedisJavaCodec implements RedisValueCodec {
+
+	public byte getFormat() {
+		return FORMAT_JAVA;
+	}
+
+	public void encode(Object o, OutputStream out) throws IOException {
+		ObjectOutputStream os = new ObjectOutputStream(out);
+		os.writeObject(o);
+		os.flush();
+	}
+
+	public Object decode(InputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream is = new ObjectInputStream(in);
+		return is.readObject();
+	}
+}
@@ -0,0 +1,95 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import de.javakaffee.kryoserializers.ArraysAsListSerializer;
+import de.javakaffee.kryoserializers.SynchronizedCollectionsSerializer;
+import de.javakaffee.kryoserializers.UnmodifiableCollectionsSerializer;
+
+/**
+ * Kryo序列化. Kryo实例非线程安全且创建开销大, 用完放回池中复用.
+ * 注册类可缩短类名占用的字节, 但读写两端注册的类及顺序必须一致, 调整时需先清理旧数据.
+ */
+public class RedisKryoCodec implements RedisValueCodec {
+
+	private static final int BUFFER_SIZE = 4096;
+
+	/* 池中最多保留的Kryo实例数 */
+	private static final int MAX_POOLED = 64;
+
+	private final List<Class<?>> registeredClasses;
+
+	private final Queue<Kryo> pool = new ConcurrentLinkedQueue<Kryo>();
+
+	public RedisKryoCodec() {
+		this(null);
+	}
+
+	public RedisKryoCodec(List<Class<?>> registeredClasses) {
+		this.registeredClasses = null == registeredClasses ? Collections.<Class<?>> emptyList() : registeredClasses;
+	}
+
+	public byte getFormat() {
+		return FORMAT_KRYO;
+	}
+
+	public void encode(Object o, OutputStream out) {
+		Kryo kryo = borrow();
+		try {
+			Output output = new Output(out, BUFFER_SIZE);
+			kryo.writeClassAndObject(output, o);
+			output.flush();
+		} finally {
+			giveBack(kryo);
+		}
+	}
+
+	public Object decode(InputStream in) {
+		Kryo kryo = borrow();
+		try {
+			return kryo.readClassAndObject(new Input(in, BUFFER_SIZE));
+		} finally {
+			giveBack(kryo);
+		}
+	}
+
+	private Kryo borrow() {
+		Kryo kryo = pool.poll();
+		return null == kryo ? create() : kryo;
+	}
+
+	private void giveBack(Kryo kryo) {
+		if (pool.size() < MAX_POOLED) {
+			pool.offer(kryo);
+		}
+	}
+
+	private Kryo create() {
+		Kryo kryo = new Kryo();
+		kryo.setReferences(true);
+		kryo.setRegistrationRequired(false);
+		/* 没有无参构造的类也能反序列化 */
+		Kryo.DefaultInstantiatorStrategy strategy = new Kryo.DefaultInstantiatorStrategy();
+		strategy.setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.setInstantiatorStrategy(strategy);
+		kryo.register(Arrays.asList().getClass(), new ArraysAsListSerializer());
+		UnmodifiableCollectionsSerializer.registerSerializers(kryo);
+		SynchronizedCollectionsSerializer.registerSerializers(kryo);
+		for (Class<?> clazz : registeredClasses) {
+			kryo.register(clazz);
+		}
+		return kryo;
+	}
+}
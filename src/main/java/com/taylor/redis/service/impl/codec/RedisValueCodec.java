@@ -0,0 +1,25 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 对象值的编解码扩展点, 由RedisValueSerializer在值前写入格式标记后调用
+ */
+public interface RedisValueCodec {
+
+	/* Java序列化流魔数的首字节, Java序列化的值本身带有该字节, 不另写标记, 历史数据可直接读取 */
+	byte FORMAT_JAVA = (byte) 0xAC;
+
+	byte FORMAT_KRYO = 1;
+
+	/**
+	 * 写在值最前面的格式标记, 每种实现唯一
+	 */
+	byte getFormat();
+
+	void encode(Object o, OutputStream out) throws IOException;
+
+	Object decode(InputStream in) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,135 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.taylor.common.exceptions.CommonRuntimeException;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
+
+/**
+ * 值压缩: 超过阈值的值用Deflate压缩, 并在前面写入标记和原始长度, 读取时按标记透明解压.
+ * 标记的第二个字节不可能出现在UTF-8文本的开头, 也与对象值的格式标记不冲突, 因此字符串和对象值都可直接判断.
+ * 阈值小于等于0时只解压不压缩.
+ */
+public class RedisValueCompressor {
+
+	private static final byte[] MAGIC = { 0x1F, (byte) 0x9E };
+
+	/* 标记 + 4字节原始长度 */
+	private static final int HEADER_LENGTH = MAGIC.length + 4;
+
+	private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+
+		protected Inflater initialValue() {
+			return new Inflater(true);
+		}
+	};
+
+	private final int threshold;
+
+	private final int level;
+
+	private final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>() {
+
+		protected Deflater initialValue() {
+			return new Deflater(level, true);
+		}
+	};
+
+	/* 压缩统计, 为空时不统计 */
+	private RedisMetrics metrics;
+
+	public RedisValueCompressor() {
+		this(0, Deflater.BEST_SPEED);
+	}
+
+	public RedisValueCompressor(int threshold, int level) {
+		this.threshold = threshold;
+		this.level = level;
+	}
+
+	public void setMetrics(RedisMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public byte[] compress(byte[] raw) {
+		if (threshold <= 0 || raw == null || raw.length < threshold) {
+			return raw;
+		}
+		long start = System.nanoTime();
+		Deflater compressor = deflater.get();
+		compressor.reset();
+		compressor.setInput(raw);
+		compressor.finish();
+		byte[] buffer = new byte[HEADER_LENGTH + raw.length];
+		int length = HEADER_LENGTH;
+		while (!compressor.finished() && length < buffer.length) {
+			length += compressor.deflate(buffer, length, buffer.length - length);
+		}
+		if (!compressor.finished()) {
+			/* 压缩后不比原值小, 不压缩 */
+			if (null != metrics) {
+				metrics.recordCompression(raw.length, raw.length, System.nanoTime() - start);
+			}
+			return raw;
+		}
+		buffer[0] = MAGIC[0];
+		buffer[1] = MAGIC[1];
+		buffer[2] = (byte) (raw.length >>> 24);
+		buffer[3] = (byte) (raw.length >>> 16);
+		buffer[4] = (byte) (raw.length >>> 8);
+		buffer[5] = (byte) raw.length;
+		byte[] compressed = new byte[length];
+		System.arraycopy(buffer, 0, compressed, 0, length);
+		if (null != metrics) {
+			metrics.recordCompression(raw.length, compressed.length, System.nanoTime() - start);
+		}
+		return compressed;
+	}
+
+	/**
+	 * @return 是否会压缩写入的值
+	 */
+	public boolean isEnabled() {
+		return threshold > 0;
+	}
+
+	public boolean isCompressed(byte[] value) {
+		return value != null && value.length >= HEADER_LENGTH && value[0] == MAGIC[0] && value[1] == MAGIC[1];
+	}
+
+	/**
+	 * 未压缩的值原样返回
+	 */
+	public byte[] decompress(byte[] value) {
+		if (!isCompressed(value)) {
+			return value;
+		}
+		long start = System.nanoTime();
+		int length = ((value[2] & 0xFF) << 24) | ((value[3] & 0xFF) << 16) | ((value[4] & 0xFF) << 8) | (value[5] & 0xFF);
+		byte[] raw = new byte[length];
+		Inflater decompressor = INFLATER.get();
+		decompressor.reset();
+		decompressor.setInput(value, HEADER_LENGTH, value.length - HEADER_LENGTH);
+		try {
+			int offset = 0;
+			while (offset < length && !decompressor.finished()) {
+				int n = decompressor.inflate(raw, offset, length - offset);
+				if (n == 0 && (decompressor.needsInput() || decompressor.needsDictionary())) {
+					break;
+				}
+				offset += n;
+			}
+			if (offset != length) {
+				throw new CommonRuntimeException("Corrupted compressed value, expect " + length + " bytes but got " + offset);
+			}
+		} catch (DataFormatException e) {
+			throw new CommonRuntimeException("Corrupted compressed value", e);
+		}
+		if (null != metrics) {
+			metrics.recordDecompression(System.nanoTime() - start);
+		}
+		return raw;
+	}
+}
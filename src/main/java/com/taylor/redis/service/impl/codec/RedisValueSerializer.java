@@ -0,0 +1,111 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.taylor.common.exceptions.CommonRuntimeException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * 对象值的序列化入口: 用指定的codec写入, 并在值前写格式标记; 读取时按标记选择codec,
+ * 因此切换codec后旧格式(包括没有标记的Java序列化数据)仍然可读. 编码后的值再交给RedisValueCompressor按阈值压缩.
+ */
+@Log4j2
+public class RedisValueSerializer {
+
+	private final RedisValueCodec codec;
+
+	private final Map<Byte, RedisValueCodec> readers = new HashMap<Byte, RedisValueCodec>();
+
+	private RedisValueCompressor compressor = new RedisValueCompressor();
+
+	public RedisValueSerializer() {
+		this(new RedisJavaCodec());
+	}
+
+	public RedisValueSerializer(RedisValueCodec codec) {
+		this.codec = codec;
+		addReader(new RedisJavaCodec());
+		addReader(new RedisKryoCodec());
+		addReader(codec);
+	}
+
+	/**
+	 * 按工厂的配置创建: 指定了codec时直接使用, 否则按codecType(kryo/java)创建
+	 */
+	public static RedisValueSerializer create(RedisValueCodec codec, String codecType, List<Class<?>> kryoClasses) {
+		RedisValueCodec valueCodec = codec;
+		if (valueCodec == null) {
+			if ("kryo".equalsIgnoreCase(codecType)) {
+				valueCodec = new RedisKryoCodec(kryoClasses);
+			} else if ("java".equalsIgnoreCase(codecType)) {
+				valueCodec = new RedisJavaCodec();
+			} else {
+				throw new CommonRuntimeException("Unknown redis value codec " + codecType);
+			}
+		}
+		return new RedisValueSerializer(valueCodec);
+	}
+
+	/**
+	 * 增加可读取的格式, 同一格式以后加入的为准
+	 */
+	public void addReader(RedisValueCodec reader) {
+		readers.put(reader.getFormat(), reader);
+	}
+
+	public RedisValueCodec getCodec() {
+		return codec;
+	}
+
+	public void setCompressor(RedisValueCompressor compressor) {
+		this.compressor = compressor;
+	}
+
+	public byte[] serialize(Object o) {
+		if (o == null) {
+			return new byte[0];
+		}
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			if (codec.getFormat() != RedisValueCodec.FORMAT_JAVA) {
+				bos.write(codec.getFormat());
+			}
+			codec.encode(o, bos);
+			return compressor.compress(bos.toByteArray());
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Non-serializable object", e);
+		}
+	}
+
+	public Object deserialize(byte[] in) {
+		if (in == null || in.length == 0) {
+			return null;
+		}
+		try {
+			in = compressor.decompress(in);
+			RedisValueCodec reader = readers.get(in[0]);
+			if (reader == null) {
+				log.warn("Unknown value format " + in[0] + " of " + in.length + " bytes");
+				return null;
+			}
+			ByteArrayInputStream bis = new ByteArrayInputStream(in);
+			if (reader.getFormat() != RedisValueCodec.FORMAT_JAVA) {
+				bis.skip(1);
+			}
+			return reader.decode(bis);
+		} catch (IOException e) {
+			log.warn("Caught IOException decoding " + in.length + " bytes of data", e);
+		} catch (ClassNotFoundException e) {
+			log.warn("Caught CNFE decoding " + in.length + " bytes of data", e);
+		} catch (RuntimeException e) {
+			log.warn("Caught exception decoding " + in.length + " bytes of data", e);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,221 @@
+package com.taylor.redis.service.impl.invalidation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.BytesMessage;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * 跨节点的本地缓存失效通知: 失效的key(或key前缀)先通知本节点的监听者, 再攒一小段时间合并成一条消息发到topic,
+ * 其他节点收到后通知各自的监听者. 节点只过滤自己发出的消息. 发送失败时只记录日志, 本地缓存靠自身的过期时间兜底.
+ */
+@Log4j2
+public class RedisInvalidationBus {
+
+	/* 发送节点的消息属性, 用来过滤自己发出的消息 */
+	private static final String NODE_PROPERTY = "redisNode";
+
+	/* 单条消息最多携带的失效项 */
+	private static final int MAX_BATCH = 1000;
+
+	private static class Invalidation {
+
+		private final boolean prefix;
+
+		private final int DBIndex;
+
+		private final String key;
+
+		Invalidation(boolean prefix, int DBIndex, String key) {
+			this.prefix = prefix;
+			this.DBIndex = DBIndex;
+			this.key = key;
+		}
+	}
+
+	private final String nodeId = UUID.randomUUID().toString();
+
+	private final String topic;
+
+	private final long batchMillis;
+
+	private final CachingConnectionFactory sendConnectionFactory;
+
+	private final JmsTemplate jmsTemplate;
+
+	private final DefaultMessageListenerContainer container;
+
+	private final ConcurrentLinkedQueue<Invalidation> pending = new ConcurrentLinkedQueue<Invalidation>();
+
+	private final List<RedisInvalidationListener> listeners = new CopyOnWriteArrayList<RedisInvalidationListener>();
+
+	private final ScheduledExecutorService flusher;
+
+	private final LongAdder sentMessages = new LongAdder();
+
+	private final LongAdder receivedMessages = new LongAdder();
+
+	public RedisInvalidationBus(ConnectionFactory connectionFactory, String topic, long batchMillis) {
+		this.topic = topic;
+		this.batchMillis = batchMillis;
+		this.sendConnectionFactory = new CachingConnectionFactory(connectionFactory);
+		this.jmsTemplate = new JmsTemplate(sendConnectionFactory);
+		this.jmsTemplate.setPubSubDomain(true);
+		this.container = new DefaultMessageListenerContainer();
+		this.container.setConnectionFactory(connectionFactory);
+		this.container.setPubSubDomain(true);
+		this.container.setDestinationName(topic);
+		this.container.setMessageSelector(NODE_PROPERTY + " <> '" + nodeId + "'");
+		this.container.setMessageListener(new MessageListener() {
+
+			public void onMessage(Message message) {
+				receive(message);
+			}
+		});
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "redis-invalidation-flusher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public void start() {
+		container.afterPropertiesSet();
+		container.start();
+		flusher.scheduleWithFixedDelay(new Runnable() {
+
+			public void run() {
+				try {
+					flush();
+				} catch (Exception e) {
+					log.warn("Publish redis cache invalidation to " + topic + " failed", e);
+				}
+			}
+		}, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+		log.info("Redis cache invalidation bus started on topic " + topic + ", node " + nodeId);
+	}
+
+	public void addListener(RedisInvalidationListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(RedisInvalidationListener listener) {
+		listeners.remove(listener);
+	}
+
+	public void publish(int DBIndex, String key) {
+		for (RedisInvalidationListener listener : listeners) {
+			listener.invalidate(DBIndex, key);
+		}
+		pending.add(new Invalidation(false, DBIndex, key));
+	}
+
+	public void publishPrefix(int DBIndex, String prefix) {
+		for (RedisInvalidationListener listener : listeners) {
+			listener.invalidatePrefix(DBIndex, prefix);
+		}
+		pending.add(new Invalidation(true, DBIndex, prefix));
+	}
+
+	/**
+	 * 把攒下的失效项发出去, 每条消息最多MAX_BATCH项
+	 */
+	public void flush() {
+		while (!pending.isEmpty()) {
+			final List<Invalidation> batch = new ArrayList<Invalidation>();
+			Invalidation invalidation;
+			while (batch.size() < MAX_BATCH && (invalidation = pending.poll()) != null) {
+				batch.add(invalidation);
+			}
+			if (batch.isEmpty()) {
+				return;
+			}
+			jmsTemplate.send(topic, new MessageCreator() {
+
+				public Message createMessage(Session session) throws JMSException {
+					BytesMessage message = session.createBytesMessage();
+					message.setStringProperty(NODE_PROPERTY, nodeId);
+					message.writeInt(batch.size());
+					for (Invalidation item : batch) {
+						message.writeBoolean(item.prefix);
+						message.writeInt(item.DBIndex);
+						message.writeUTF(item.key);
+					}
+					return message;
+				}
+			});
+			sentMessages.increment();
+		}
+	}
+
+	private void receive(Message message) {
+		if (!(message instanceof BytesMessage)) {
+			return;
+		}
+		receivedMessages.increment();
+		try {
+			BytesMessage bytes = (BytesMessage) message;
+			int size = bytes.readInt();
+			for (int i = 0; i < size; i++) {
+				boolean prefix = bytes.readBoolean();
+				int DBIndex = bytes.readInt();
+				String key = bytes.readUTF();
+				for (RedisInvalidationListener listener : listeners) {
+					if (prefix) {
+						listener.invalidatePrefix(DBIndex, key);
+					} else {
+						listener.invalidate(DBIndex, key);
+					}
+				}
+			}
+		} catch (JMSException e) {
+			log.warn("Read redis cache invalidation from " + topic + " failed", e);
+		}
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public long getSentMessages() {
+		return sentMessages.sum();
+	}
+
+	public long getReceivedMessages() {
+		return receivedMessages.sum();
+	}
+
+	public void shutdown() {
+		flusher.shutdown();
+		try {
+			flush();
+		} catch (Exception e) {
+			log.warn("Publish redis cache invalidation to " + topic + " failed", e);
+		}
+		container.shutdown();
+		sendConnectionFactory.destroy();
+	}
+}
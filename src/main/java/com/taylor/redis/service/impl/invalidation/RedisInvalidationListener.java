@@ -0,0 +1,11 @@
+package com.taylor.redis.service.impl.invalidation;
+
+/**
+ * 接收缓存失效通知, DBIndex小于0时表示不区分库
+ */
+public interface RedisInvalidationListener {
+
+	void invalidate(int DBIndex, String key);
+
+	void invalidatePrefix(int DBIndex, String prefix);
+}
@@ -0,0 +1,24 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.beans.ConstructorProperties;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 热点key及其在统计窗口内的估计访问次数
+ */
+@Getter
+@ToString
+public class RedisHotKey {
+
+	private final String key;
+
+	private final long count;
+
+	@ConstructorProperties({ "key", "count" })
+	public RedisHotKey(String key, long count) {
+		this.key = key;
+		this.count = count;
+	}
+}
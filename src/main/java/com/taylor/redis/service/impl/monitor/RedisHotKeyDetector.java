@@ -0,0 +1,96 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * 热点key探测: 按采样率抽取doOperation的key, 分别按命令和分片组统计, 定期输出各维度的top-K并开始新的统计窗口.
+ * 用法: if (detector.sample()) { detector.record(key, scopes...); }
+ */
+@Log4j2
+public class RedisHotKeyDetector {
+
+	/* 每sampleRate次调用采样一次 */
+	private final int sampleRate;
+
+	private final int topK;
+
+	private final ConcurrentMap<String, RedisHotKeySketch> sketches = new ConcurrentHashMap<String, RedisHotKeySketch>();
+
+	private final ScheduledExecutorService reporter;
+
+	/* 上一个统计窗口的结果 */
+	private volatile Map<String, List<RedisHotKey>> lastReport = new TreeMap<String, List<RedisHotKey>>();
+
+	public RedisHotKeyDetector(int sampleRate, int topK, long reportSeconds) {
+		this.sampleRate = Math.max(1, sampleRate);
+		this.topK = topK;
+		reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "redis-hotkey-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		reporter.scheduleAtFixedRate(new Runnable() {
+
+			public void run() {
+				report();
+			}
+		}, reportSeconds, reportSeconds, TimeUnit.SECONDS);
+	}
+
+	public boolean sample() {
+		return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+	}
+
+	/**
+	 * 记录一次采样到的访问, 每个scope(命令名/分片组)各计一次
+	 */
+	public void record(String key, String... scopes) {
+		if (key == null) {
+			return;
+		}
+		for (String scope : scopes) {
+			RedisHotKeySketch sketch = sketches.get(scope);
+			if (sketch == null) {
+				sketches.putIfAbsent(scope, new RedisHotKeySketch(topK));
+				sketch = sketches.get(scope);
+			}
+			sketch.add(key, sampleRate);
+		}
+	}
+
+	public Map<String, List<RedisHotKey>> getLastReport() {
+		return lastReport;
+	}
+
+	void report() {
+		Map<String, List<RedisHotKey>> report = new TreeMap<String, List<RedisHotKey>>();
+		for (Entry<String, RedisHotKeySketch> entry : sketches.entrySet()) {
+			List<RedisHotKey> top = entry.getValue().top();
+			entry.getValue().reset();
+			if (!top.isEmpty()) {
+				report.put(entry.getKey(), top);
+				log.info("Redis hot keys of " + entry.getKey() + ": " + top);
+			}
+		}
+		lastReport = report;
+	}
+
+	public void shutdown() {
+		reporter.shutdownNow();
+	}
+}
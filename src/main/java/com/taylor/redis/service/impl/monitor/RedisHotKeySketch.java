@@ -0,0 +1,102 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min计数 + top-K: 计数表大小固定, 只保留估计次数最高的K个key, 内存有上限.
+ * 计数只做原子加, 只有估计值能进入top-K时才加锁更新top-K.
+ */
+public class RedisHotKeySketch {
+
+	private static final int DEPTH = 4;
+
+	private static final int WIDTH = 1024;
+
+	private final AtomicLongArray counters = new AtomicLongArray(DEPTH * WIDTH);
+
+	private final int topK;
+
+	private final Map<String, Long> top = new HashMap<String, Long>();
+
+	/* top-K中最小的估计值, 小于它的key不用加锁 */
+	private volatile long topMin = 0;
+
+	public RedisHotKeySketch(int topK) {
+		this.topK = topK;
+	}
+
+	public void add(String key, long increment) {
+		int h1 = mix(key.hashCode());
+		int h2 = mix(h1 ^ 0x5bd1e995);
+		long estimate = Long.MAX_VALUE;
+		for (int i = 0; i < DEPTH; i++) {
+			int index = i * WIDTH + ((h1 + i * h2) & (WIDTH - 1));
+			estimate = Math.min(estimate, counters.addAndGet(index, increment));
+		}
+		if (estimate <= topMin) {
+			return;
+		}
+		synchronized (top) {
+			top.put(key, estimate);
+			if (top.size() > topK) {
+				String minKey = null;
+				long min = Long.MAX_VALUE;
+				for (Entry<String, Long> entry : top.entrySet()) {
+					if (entry.getValue() < min) {
+						min = entry.getValue();
+						minKey = entry.getKey();
+					}
+				}
+				top.remove(minKey);
+			}
+			if (top.size() >= topK) {
+				topMin = Collections.min(top.values());
+			}
+		}
+	}
+
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * 按估计次数从高到低返回top-K
+	 */
+	public List<RedisHotKey> top() {
+		List<RedisHotKey> result = new ArrayList<RedisHotKey>();
+		synchronized (top) {
+			for (Entry<String, Long> entry : top.entrySet()) {
+				result.add(new RedisHotKey(entry.getKey(), entry.getValue()));
+			}
+		}
+		Collections.sort(result, new Comparator<RedisHotKey>() {
+
+			public int compare(RedisHotKey o1, RedisHotKey o2) {
+				return Long.compare(o2.getCount(), o1.getCount());
+			}
+		});
+		return result;
+	}
+
+	public void reset() {
+		synchronized (top) {
+			for (int i = 0; i < counters.length(); i++) {
+				counters.set(i, 0);
+			}
+			top.clear();
+			topMin = 0;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数分桶延迟直方图(HDR风格), 单位微秒.
+ * 每个2的幂区间再等分16个子桶, 相对误差约6%, 记录只有几次原子加, 可以放在每次调用的路径上.
+ */
+public class RedisLatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	/* 最大可区分2^37us(约38小时), 更大的值记在最后一个桶 */
+	private static final int MAX_EXPONENT = 36;
+
+	private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT);
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long micros) {
+		if (micros < 0) {
+			micros = 0;
+		}
+		counts.incrementAndGet(index(micros));
+		total.increment();
+		sum.add(micros);
+		long current = max.get();
+		while (micros > current && !max.compareAndSet(current, micros)) {
+			current = max.get();
+		}
+	}
+
+	static int index(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			exponent = MAX_EXPONENT;
+			value = (1L << (MAX_EXPONENT + 1)) - 1;
+		}
+		int shift = exponent - SUB_BITS;
+		return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+	}
+
+	/**
+	 * 桶的上界
+	 */
+	static long upperBound(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_COUNT - 1;
+		long lower = ((long) (SUB_COUNT + index % SUB_COUNT)) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	public RedisLatencySnapshot snapshot() {
+		long[] copy = new long[counts.length()];
+		long count = 0;
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		long recorded = total.sum();
+		long mean = recorded == 0 ? 0 : sum.sum() / recorded;
+		return new RedisLatencySnapshot(count, mean, max.get(), percentile(copy, count, 0.5), percentile(copy, count, 0.9), percentile(copy, count, 0.99), percentile(copy, count, 0.999));
+	}
+
+	/**
+	 * @param percentile 如0.95, 没有样本时返回0
+	 */
+	public long percentile(double percentile) {
+		long[] copy = new long[counts.length()];
+		long count = 0;
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return percentile(copy, count, percentile);
+	}
+
+	public long getCount() {
+		return total.sum();
+	}
+
+	private static long percentile(long[] copy, long count, double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile);
+		long seen = 0;
+		for (int i = 0; i < copy.length; i++) {
+			seen += copy[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(copy.length - 1);
+	}
+
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		total.reset();
+		sum.reset();
+		max.set(0);
+	}
+}
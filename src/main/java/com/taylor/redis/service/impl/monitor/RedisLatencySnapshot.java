@@ -0,0 +1,39 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.beans.ConstructorProperties;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 直方图某一时刻的统计结果, 单位微秒
+ */
+@Getter
+@ToString
+public class RedisLatencySnapshot {
+
+	private final long count;
+
+	private final long mean;
+
+	private final long max;
+
+	private final long p50;
+
+	private final long p90;
+
+	private final long p99;
+
+	private final long p999;
+
+	@ConstructorProperties({ "count", "mean", "max", "p50", "p90", "p99", "p999" })
+	public RedisLatencySnapshot(long count, long mean, long max, long p50, long p90, long p99, long p999) {
+		this.count = count;
+		this.mean = mean;
+		this.max = max;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+	}
+}
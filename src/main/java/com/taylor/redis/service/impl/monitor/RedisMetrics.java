@@ -0,0 +1,145 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * 客户端的延迟统计: 按命令(及分片组)记录命令耗时, 按连接池记录借连接的等待耗时, 另记录值压缩的耗时和压缩率
+ */
+@Log4j2
+public class RedisMetrics implements RedisMetricsMXBean {
+
+	private final ConcurrentMap<String, RedisLatencyHistogram> commandLatency = new ConcurrentHashMap<String, RedisLatencyHistogram>();
+
+	private final ConcurrentMap<String, RedisLatencyHistogram> borrowLatency = new ConcurrentHashMap<String, RedisLatencyHistogram>();
+
+	private final RedisLatencyHistogram compressLatency = new RedisLatencyHistogram();
+
+	private final RedisLatencyHistogram decompressLatency = new RedisLatencyHistogram();
+
+	/* 参与压缩的值压缩前后的总字节数 */
+	private final LongAdder uncompressedBytes = new LongAdder();
+
+	private final LongAdder compressedBytes = new LongAdder();
+
+	private ObjectName objectName;
+
+	public void recordCommand(String name, long nanos) {
+		histogram(commandLatency, name).record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	public void recordBorrow(String pool, long nanos) {
+		histogram(borrowLatency, pool).record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	public void recordCompression(int rawLength, int compressedLength, long nanos) {
+		uncompressedBytes.add(rawLength);
+		compressedBytes.add(compressedLength);
+		compressLatency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	public void recordDecompression(long nanos) {
+		decompressLatency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	private static RedisLatencyHistogram histogram(ConcurrentMap<String, RedisLatencyHistogram> histograms, String name) {
+		RedisLatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histograms.putIfAbsent(name, new RedisLatencyHistogram());
+			histogram = histograms.get(name);
+		}
+		return histogram;
+	}
+
+	@Override
+	public Map<String, RedisLatencySnapshot> getCommandLatency() {
+		return snapshot(commandLatency);
+	}
+
+	@Override
+	public Map<String, RedisLatencySnapshot> getBorrowLatency() {
+		return snapshot(borrowLatency);
+	}
+
+	@Override
+	public RedisLatencySnapshot getCompressLatency() {
+		return compressLatency.snapshot();
+	}
+
+	@Override
+	public RedisLatencySnapshot getDecompressLatency() {
+		return decompressLatency.snapshot();
+	}
+
+	@Override
+	public long getUncompressedBytes() {
+		return uncompressedBytes.sum();
+	}
+
+	@Override
+	public long getCompressedBytes() {
+		return compressedBytes.sum();
+	}
+
+	@Override
+	public double getCompressionRatio() {
+		long raw = uncompressedBytes.sum();
+		return raw == 0 ? 1 : (double) compressedBytes.sum() / raw;
+	}
+
+	private static Map<String, RedisLatencySnapshot> snapshot(ConcurrentMap<String, RedisLatencyHistogram> histograms) {
+		Map<String, RedisLatencySnapshot> result = new TreeMap<String, RedisLatencySnapshot>();
+		for (Entry<String, RedisLatencyHistogram> entry : histograms.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		for (RedisLatencyHistogram histogram : commandLatency.values()) {
+			histogram.reset();
+		}
+		for (RedisLatencyHistogram histogram : borrowLatency.values()) {
+			histogram.reset();
+		}
+		compressLatency.reset();
+		decompressLatency.reset();
+		uncompressedBytes.reset();
+		compressedBytes.reset();
+	}
+
+	public void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.taylor.redis:type=RedisMetrics,name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(this, objectName);
+			}
+		} catch (Exception e) {
+			log.warn("Register redis metrics mbean " + name + " failed", e);
+		}
+	}
+
+	public void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (Exception e) {
+			log.warn("Unregister redis metrics mbean " + objectName + " failed", e);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.taylor.redis.service.impl.monitor;
+
+import java.util.Map;
+
+/**
+ * 通过JMX暴露的延迟统计, 单位微秒
+ */
+public interface RedisMetricsMXBean {
+
+	/**
+	 * 命令耗时, key为命令名, 分片客户端另有"group {id}:命令名"
+	 */
+	Map<String, RedisLatencySnapshot> getCommandLatency();
+
+	/**
+	 * 从连接池借连接的等待耗时, key为连接池名
+	 */
+	Map<String, RedisLatencySnapshot> getBorrowLatency();
+
+	/**
+	 * 超过阈值的值压缩耗时
+	 */
+	RedisLatencySnapshot getCompressLatency();
+
+	RedisLatencySnapshot getDecompressLatency();
+
+	long getUncompressedBytes();
+
+	long getCompressedBytes();
+
+	/**
+	 * 压缩后/压缩前, 用于调整压缩阈值
+	 */
+	double getCompressionRatio();
+
+	void reset();
+}
@@ -0,0 +1,35 @@
+package com.taylor.redis.service.impl.netty;
+
+import java.util.concurrent.CompletableFuture;
+
+import lombok.Getter;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 一条已发出或待发出的命令, 应答到达后完成future
+ */
+@Getter
+public class RedisCommand {
+
+	private final byte[][] args;
+
+	private final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+	/* 写出时的System.nanoTime(), 用于判断连接是否卡住和统计耗时, 未写出时为0 */
+	private volatile long sentTime;
+
+	public RedisCommand(Command command, byte[]... params) {
+		args = new byte[params.length + 1][];
+		args[0] = command.raw;
+		System.arraycopy(params, 0, args, 1, params.length);
+	}
+
+	void markSent() {
+		sentTime = System.nanoTime();
+	}
+
+	public String getOperationName() {
+		return SafeEncoder.encode(args[0]);
+	}
+}
@@ -0,0 +1,43 @@
+package com.taylor.redis.service.impl.netty;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 将RedisCommand按RESP协议编码: *argc\r\n($len\r\narg\r\n)*
+ */
+public class RedisCommandEncoder extends OneToOneEncoder {
+
+	private static final byte[] CRLF = new byte[] { '\r', '\n' };
+
+	@Override
+	protected Object encode(ChannelHandlerContext ctx, Channel channel, Object msg) throws Exception {
+		if (!(msg instanceof RedisCommand)) {
+			return msg;
+		}
+		byte[][] args = ((RedisCommand) msg).getArgs();
+		int size = 16;
+		for (byte[] arg : args) {
+			size += arg.length + 16;
+		}
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(size);
+		writeHeader(buffer, (byte) '*', args.length);
+		for (byte[] arg : args) {
+			writeHeader(buffer, (byte) '$', arg.length);
+			buffer.writeBytes(arg);
+			buffer.writeBytes(CRLF);
+		}
+		return buffer;
+	}
+
+	private static void writeHeader(ChannelBuffer buffer, byte type, int length) {
+		buffer.writeByte(type);
+		buffer.writeBytes(SafeEncoder.encode(String.valueOf(length)));
+		buffer.writeBytes(CRLF);
+	}
+}
@@ -0,0 +1,107 @@
+package com.taylor.redis.service.impl.netty;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 一条长连接上可同时有多个未完成的命令, redis按发送顺序应答, 因此按FIFO把应答交给等待队列的队头
+ */
+@Log4j2
+public class RedisPipelineConnection extends SimpleChannelUpstreamHandler {
+
+	private final Queue<RedisCommand> pending = new ConcurrentLinkedQueue<RedisCommand>();
+
+	private volatile Channel channel;
+
+	public void setChannel(Channel channel) {
+		this.channel = channel;
+	}
+
+	public boolean isConnected() {
+		return channel != null && channel.isConnected();
+	}
+
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	public RedisCommand write(RedisCommand command) {
+		/* 入队顺序必须与写出顺序一致 */
+		synchronized (this) {
+			if (!isConnected()) {
+				command.getFuture().completeExceptionally(new JedisConnectionException("Connection closed"));
+				return command;
+			}
+			command.markSent();
+			pending.add(command);
+			channel.write(command);
+		}
+		return command;
+	}
+
+	/**
+	 * 最早发出的命令超过timeoutMillis仍未应答时关闭连接(半开或卡住的连接仍显示已连接), 未完成的命令都以连接异常结束, 下次使用时重连
+	 *
+	 * @return 是否关闭了连接
+	 */
+	public boolean closeIfStalled(long timeoutMillis) {
+		RedisCommand oldest = pending.peek();
+		Channel current = channel;
+		if (oldest == null || current == null || System.nanoTime() - oldest.getSentTime() < TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+			return false;
+		}
+		log.warn("Redis pipeline connection " + current.getRemoteAddress() + " got no reply in " + timeoutMillis + "ms, close it with " + pending.size()
+				+ " pending commands");
+		current.close();
+		return true;
+	}
+
+	@Override
+	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		RedisCommand command = pending.poll();
+		if (command == null) {
+			log.warn("Unexpected redis reply without pending command: " + e.getMessage());
+			return;
+		}
+		Object reply = e.getMessage();
+		if (reply instanceof JedisDataException) {
+			command.getFuture().completeExceptionally((JedisDataException) reply);
+		} else {
+			command.getFuture().complete(reply == RedisReplyDecoder.NIL ? null : reply);
+		}
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+		log.error("Redis pipeline connection exception", e.getCause());
+		e.getChannel().close();
+	}
+
+	@Override
+	public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+		synchronized (this) {
+			RedisCommand command;
+			while ((command = pending.poll()) != null) {
+				command.getFuture().completeExceptionally(new JedisConnectionException("Connection closed"));
+			}
+		}
+	}
+
+	public void close() {
+		if (channel != null) {
+			channel.close().awaitUninterruptibly();
+		}
+	}
+}
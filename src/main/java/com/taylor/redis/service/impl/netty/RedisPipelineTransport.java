@@ -0,0 +1,221 @@
+package com.taylor.redis.service.impl.netty;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+
+import com.taylor.redis.service.impl.monitor.RedisHotKeyDetector;
+import com.taylor.redis.service.impl.monitor.RedisMetrics;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 基于netty的多路复用传输: 每个库只保持少量长连接, 命令不独占连接, 同一连接上可同时有多个命令在途
+ */
+@Log4j2
+public class RedisPipelineTransport {
+
+	private final String host;
+
+	private final int port;
+
+	private final int timeout;
+
+	private final String password;
+
+	/* 每个库的长连接数 */
+	private final int connections;
+
+	private final ClientBootstrap bootstrap;
+
+	private final ConcurrentMap<Integer, RedisPipelineConnection[]> dbConnections = new ConcurrentHashMap<Integer, RedisPipelineConnection[]>();
+
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	/* 定期关闭超过timeout仍有命令未应答的连接, timeout小于等于0时不检查 */
+	private final ScheduledExecutorService checker;
+
+	/* 热点key探测, 为空时不探测 */
+	private RedisHotKeyDetector hotKeys;
+
+	/* 每条命令从写出到应答的耗时, 为空时不统计 */
+	private RedisMetrics metrics;
+
+	public RedisPipelineTransport(String host, int port, int timeout, String password, int connections) {
+		this.host = host;
+		this.port = port;
+		this.timeout = timeout;
+		this.password = password;
+		this.connections = connections;
+
+		bootstrap = new ClientBootstrap(new NioClientSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool()));
+		bootstrap.setOption("tcpNoDelay", true);
+		bootstrap.setOption("keepAlive", true);
+		bootstrap.setOption("connectTimeoutMillis", timeout);
+		bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+
+			public ChannelPipeline getPipeline() throws Exception {
+				ChannelPipeline pipeline = Channels.pipeline();
+				pipeline.addLast("decoder", new RedisReplyDecoder());
+				pipeline.addLast("encoder", new RedisCommandEncoder());
+				pipeline.addLast("handler", new RedisPipelineConnection());
+				return pipeline;
+			}
+		});
+		if (timeout > 0) {
+			checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "redis-pipeline-checker");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			long period = Math.max(10, timeout / 4);
+			checker.scheduleWithFixedDelay(new Runnable() {
+
+				public void run() {
+					try {
+						closeStalled();
+					} catch (Exception e) {
+						log.warn("Check redis pipeline connections failed", e);
+					}
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			checker = null;
+		}
+	}
+
+	private void closeStalled() {
+		for (RedisPipelineConnection[] slots : dbConnections.values()) {
+			for (RedisPipelineConnection connection : slots) {
+				if (connection != null) {
+					connection.closeIfStalled(timeout);
+				}
+			}
+		}
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public void setHotKeys(RedisHotKeyDetector hotKeys) {
+		this.hotKeys = hotKeys;
+	}
+
+	public void setMetrics(RedisMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public CompletableFuture<Object> execute(int DBIndex, Command command, byte[]... args) {
+		if (null != hotKeys && args.length > 0 && hotKeys.sample()) {
+			/* 第一个参数即key */
+			hotKeys.record(SafeEncoder.encode(args[0]), command.name().toLowerCase(), "DB " + DBIndex);
+		}
+		final RedisCommand redisCommand = new RedisCommand(command, args);
+		try {
+			connection(DBIndex).write(redisCommand);
+		} catch (JedisConnectionException e) {
+			redisCommand.getFuture().completeExceptionally(e);
+		}
+		final RedisMetrics metrics = this.metrics;
+		if (null != metrics && redisCommand.getSentTime() != 0) {
+			final String name = command.name().toLowerCase();
+			/* 应答到达时在IO线程记录 */
+			redisCommand.getFuture().whenComplete(new BiConsumer<Object, Throwable>() {
+
+				public void accept(Object reply, Throwable error) {
+					metrics.recordCommand(name, System.nanoTime() - redisCommand.getSentTime());
+				}
+			});
+		}
+		return redisCommand.getFuture();
+	}
+
+	/**
+	 * 预先建立该库的全部长连接
+	 */
+	public void warmUp(int DBIndex) {
+		for (int i = 0; i < connections; i++) {
+			connection(DBIndex);
+		}
+	}
+
+	private RedisPipelineConnection connection(int DBIndex) {
+		RedisPipelineConnection[] slots = dbConnections.get(DBIndex);
+		if (slots == null) {
+			dbConnections.putIfAbsent(DBIndex, new RedisPipelineConnection[connections]);
+			slots = dbConnections.get(DBIndex);
+		}
+		int index = (sequence.getAndIncrement() & Integer.MAX_VALUE) % slots.length;
+		RedisPipelineConnection connection = slots[index];
+		if (connection != null && connection.isConnected()) {
+			return connection;
+		}
+		synchronized (slots) {
+			connection = slots[index];
+			if (connection == null || !connection.isConnected()) {
+				connection = connect(DBIndex);
+				slots[index] = connection;
+			}
+			return connection;
+		}
+	}
+
+	private RedisPipelineConnection connect(int DBIndex) {
+		ChannelFuture future = bootstrap.connect(new InetSocketAddress(host, port));
+		if (!future.awaitUninterruptibly(timeout) || !future.isSuccess()) {
+			future.cancel();
+			throw new JedisConnectionException("Could not connect to " + host + ":" + port, future.getCause());
+		}
+		RedisPipelineConnection connection = future.getChannel().getPipeline().get(RedisPipelineConnection.class);
+		connection.setChannel(future.getChannel());
+		try {
+			if (password != null) {
+				connection.write(new RedisCommand(Command.AUTH, SafeEncoder.encode(password))).getFuture().get(timeout, TimeUnit.MILLISECONDS);
+			}
+			if (DBIndex != 0) {
+				connection.write(new RedisCommand(Command.SELECT, SafeEncoder.encode(String.valueOf(DBIndex)))).getFuture().get(timeout, TimeUnit.MILLISECONDS);
+			}
+		} catch (Exception e) {
+			connection.close();
+			throw new JedisConnectionException("Initialize connection to " + host + ":" + port + " failed", e);
+		}
+		log.info("Open pipeline connection to " + host + ":" + port + " for DB " + DBIndex);
+		return connection;
+	}
+
+	public void destroy() {
+		if (checker != null) {
+			checker.shutdown();
+		}
+		for (RedisPipelineConnection[] slots : dbConnections.values()) {
+			for (RedisPipelineConnection connection : slots) {
+				if (connection != null) {
+					connection.close();
+				}
+			}
+		}
+		dbConnections.clear();
+		bootstrap.releaseExternalResources();
+	}
+}
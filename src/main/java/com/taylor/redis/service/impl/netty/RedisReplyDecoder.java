@@ -0,0 +1,139 @@
+package com.taylor.redis.service.impl.netty;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * RESP应答解码:
+ * 状态行为String, 错误为JedisDataException, 整数为Long, 批量回复为byte[], 多批量回复为List.
+ * 多批量回复分多个包到达时保留已解析的元素, 数据不完整时只回退到未完成的元素开头, 大回复不会从头重复解析
+ */
+public class RedisReplyDecoder extends FrameDecoder {
+
+	/* 空回复($-1/*-1), FrameDecoder不能返回null, 用它占位 */
+	public static final Object NIL = new Object();
+
+	/* 数据不完整, 等下一个包 */
+	private static final Object INCOMPLETE = new Object();
+
+	/**
+	 * 未解析完的多批量回复
+	 */
+	private static class MultiBulk {
+
+		private final int count;
+
+		private final List<Object> items;
+
+		MultiBulk(int count) {
+			this.count = count;
+			this.items = new ArrayList<Object>(count);
+		}
+	}
+
+	/* 嵌套的未完成多批量回复, 栈顶为最内层; 每个连接一个解码器, 只在IO线程访问 */
+	private final Deque<MultiBulk> partial = new ArrayDeque<MultiBulk>();
+
+	@Override
+	protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+		while (true) {
+			int start = buffer.readerIndex();
+			Object item;
+			try {
+				item = parse(buffer);
+			} catch (RuntimeException e) {
+				partial.clear();
+				throw e;
+			}
+			if (item == INCOMPLETE) {
+				buffer.readerIndex(start);
+				return null;
+			}
+			if (item instanceof MultiBulk) {
+				partial.push((MultiBulk) item);
+				continue;
+			}
+			/* 完成的元素逐层归入外层回复 */
+			while (!partial.isEmpty()) {
+				MultiBulk top = partial.peek();
+				top.items.add(item);
+				if (top.items.size() < top.count) {
+					break;
+				}
+				partial.pop();
+				item = top.items;
+			}
+			if (partial.isEmpty()) {
+				return item == null ? NIL : item;
+			}
+		}
+	}
+
+	/**
+	 * 解析一个完整的单值, 或多批量回复的头部(返回MultiBulk)
+	 */
+	private Object parse(ChannelBuffer buffer) {
+		if (!buffer.readable()) {
+			return INCOMPLETE;
+		}
+		byte type = buffer.readByte();
+		String line = readLine(buffer);
+		if (line == null) {
+			return INCOMPLETE;
+		}
+		switch (type) {
+		case '+':
+			return line;
+		case '-':
+			return new JedisDataException(line);
+		case ':':
+			return Long.valueOf(line);
+		case '$': {
+			int length = Integer.parseInt(line);
+			if (length < 0) {
+				return null;
+			}
+			if (buffer.readableBytes() < length + 2) {
+				return INCOMPLETE;
+			}
+			byte[] bulk = new byte[length];
+			buffer.readBytes(bulk);
+			buffer.skipBytes(2);
+			return bulk;
+		}
+		case '*': {
+			int count = Integer.parseInt(line);
+			if (count < 0) {
+				return null;
+			}
+			if (count == 0) {
+				return new ArrayList<Object>(0);
+			}
+			return new MultiBulk(count);
+		}
+		default:
+			throw new JedisDataException("Unknown reply: " + (char) type);
+		}
+	}
+
+	private String readLine(ChannelBuffer buffer) {
+		int eol = buffer.indexOf(buffer.readerIndex(), buffer.writerIndex(), (byte) '\n');
+		if (eol < 0) {
+			return null;
+		}
+		byte[] line = new byte[eol - buffer.readerIndex() - 1];
+		buffer.readBytes(line);
+		buffer.skipBytes(2);
+		return SafeEncoder.encode(line);
+	}
+}
@@ -0,0 +1,11 @@
+package com.taylor.redis.service.impl.replica;
+
+import com.taylor.redis.common.shard.RedisShardInfo;
+
+/**
+ * 分片组主节点切换的通知, 在拓扑探测线程中调用
+ */
+public interface RedisFailoverListener {
+
+	void onFailover(Integer groupId, RedisShardInfo oldMaster, RedisShardInfo newMaster);
+}
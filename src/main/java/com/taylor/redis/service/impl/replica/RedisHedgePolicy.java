@@ -0,0 +1,264 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.taylor.redis.service.impl.monitor.RedisLatencyHistogram;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * 对冲读的策略: 按分片组统计读耗时, 读超过该组p95仍未返回时允许向同组另一节点再发一次.
+ * 对冲次数用令牌桶限制: 每次读加budgetPercent%个令牌, 每次对冲用一个, 最多攒MAX_TOKENS个应对突发.
+ * 原请求在调用方线程执行, 这里只负责到点触发对冲, 对冲请求在有界线程池中执行, 线程和队列都满时不对冲.
+ */
+@Log4j2
+public class RedisHedgePolicy implements RedisHedgePolicyMXBean {
+
+	/* 令牌按千分之一计数 */
+	private static final long TOKEN = 1000;
+
+	private static final long MAX_TOKENS = 10 * TOKEN;
+
+	/* 样本数少于该值时不对冲 */
+	private static final long MIN_SAMPLES = 100;
+
+	/* 重新计算p95的间隔 */
+	private static final long REFRESH_MILLIS = 1000;
+
+	/* 计算后样本数超过该值时清空, 只保留近期的耗时 */
+	private static final long RESET_SAMPLES = 10000;
+
+	private static class GroupLatency {
+
+		private final RedisLatencyHistogram histogram = new RedisLatencyHistogram();
+
+		/* 0表示样本不足 */
+		private volatile long delayMicros;
+
+		private volatile long refreshTime;
+
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+	}
+
+	private final long tokensPerRead;
+
+	private final long minDelayMicros;
+
+	private final ConcurrentMap<Integer, GroupLatency> groups = new ConcurrentHashMap<Integer, GroupLatency>();
+
+	private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+	/* 到点触发对冲的定时器, 原请求先返回时取消 */
+	private final ScheduledThreadPoolExecutor timer;
+
+	/* 执行对冲请求的有界线程池 */
+	private final ThreadPoolExecutor executor;
+
+	private final LongAdder reads = new LongAdder();
+
+	private final LongAdder hedges = new LongAdder();
+
+	private final LongAdder wins = new LongAdder();
+
+	private final LongAdder exhausted = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private ObjectName objectName;
+
+	public RedisHedgePolicy(double budgetPercent, long minDelayMicros, int threads, int queueSize) {
+		this.tokensPerRead = Math.round(budgetPercent * TOKEN / 100);
+		this.minDelayMicros = minDelayMicros;
+		this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "redis-hedge-timer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.timer.setRemoveOnCancelPolicy(true);
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+
+			private final AtomicInteger index = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "redis-hedge-read-" + index.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * delayMicros后在定时器线程上执行task, 返回的future用于原请求先返回时取消
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delayMicros) {
+		return timer.schedule(task, delayMicros, TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * 在对冲线程池中执行已取得令牌的对冲请求
+	 *
+	 * @return 线程和队列都满时退回令牌并返回false, 即不对冲
+	 */
+	public boolean execute(Runnable hedge) {
+		try {
+			executor.execute(hedge);
+			return true;
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			hedges.decrement();
+			tokens.addAndGet(TOKEN);
+			return false;
+		}
+	}
+
+	/**
+	 * 记录一次读, 并补充对冲令牌
+	 */
+	public void recordRead(Integer groupId, long nanos) {
+		reads.increment();
+		group(groupId).histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+		long current = tokens.get();
+		while (current < MAX_TOKENS && !tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + tokensPerRead))) {
+			current = tokens.get();
+		}
+	}
+
+	/**
+	 * @return 对冲前等待的时间(us), 样本不足时返回0, 表示不对冲
+	 */
+	public long getDelayMicros(Integer groupId) {
+		GroupLatency latency = group(groupId);
+		long now = System.currentTimeMillis();
+		if (now - latency.refreshTime >= REFRESH_MILLIS && latency.refreshing.compareAndSet(false, true)) {
+			try {
+				RedisLatencyHistogram histogram = latency.histogram;
+				long count = histogram.getCount();
+				if (count >= MIN_SAMPLES) {
+					latency.delayMicros = Math.max(minDelayMicros, histogram.percentile(0.95));
+					if (count >= RESET_SAMPLES) {
+						histogram.reset();
+					}
+				}
+				latency.refreshTime = now;
+			} finally {
+				latency.refreshing.set(false);
+			}
+		}
+		return latency.delayMicros;
+	}
+
+	/**
+	 * @return 预算内时取走一个令牌并返回true
+	 */
+	public boolean tryHedge() {
+		long current = tokens.get();
+		while (current >= TOKEN) {
+			if (tokens.compareAndSet(current, current - TOKEN)) {
+				hedges.increment();
+				return true;
+			}
+			current = tokens.get();
+		}
+		exhausted.increment();
+		return false;
+	}
+
+	public void recordWin() {
+		wins.increment();
+	}
+
+	private GroupLatency group(Integer groupId) {
+		GroupLatency latency = groups.get(groupId);
+		if (latency == null) {
+			groups.putIfAbsent(groupId, new GroupLatency());
+			latency = groups.get(groupId);
+		}
+		return latency;
+	}
+
+	public void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.taylor.redis:type=RedisHedgePolicy,name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(this, objectName);
+			}
+		} catch (Exception e) {
+			log.warn("Register redis hedge policy mbean " + name + " failed", e);
+		}
+	}
+
+	public void shutdown() {
+		timer.shutdownNow();
+		executor.shutdown();
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (Exception e) {
+				log.warn("Unregister redis hedge policy mbean " + objectName + " failed", e);
+			}
+		}
+	}
+
+	@Override
+	public long getReadCount() {
+		return reads.sum();
+	}
+
+	@Override
+	public long getHedgeCount() {
+		return hedges.sum();
+	}
+
+	@Override
+	public long getHedgeWinCount() {
+		return wins.sum();
+	}
+
+	@Override
+	public long getBudgetExhaustedCount() {
+		return exhausted.sum();
+	}
+
+	@Override
+	public long getHedgeRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public double getHedgeRate() {
+		long count = reads.sum();
+		return count == 0 ? 0 : (double) hedges.sum() / count;
+	}
+
+	@Override
+	public Map<String, Long> getHedgeDelayMicros() {
+		Map<String, Long> delays = new TreeMap<String, Long>();
+		for (Map.Entry<Integer, GroupLatency> entry : groups.entrySet()) {
+			delays.put("group " + entry.getKey(), entry.getValue().delayMicros);
+		}
+		return delays;
+	}
+}
@@ -0,0 +1,41 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.util.Map;
+
+/**
+ * 通过JMX暴露的对冲读统计
+ */
+public interface RedisHedgePolicyMXBean {
+
+	long getReadCount();
+
+	/**
+	 * 发出的对冲请求数
+	 */
+	long getHedgeCount();
+
+	/**
+	 * 对冲请求先于原请求返回的次数
+	 */
+	long getHedgeWinCount();
+
+	/**
+	 * 超过等待时间但预算不足而没有对冲的次数
+	 */
+	long getBudgetExhaustedCount();
+
+	/**
+	 * 对冲线程池已满而没有对冲的次数
+	 */
+	long getHedgeRejectedCount();
+
+	/**
+	 * 对冲请求数/读请求数
+	 */
+	double getHedgeRate();
+
+	/**
+	 * 各分片组当前的对冲等待时间(us), key为"group {id}"
+	 */
+	Map<String, Long> getHedgeDelayMicros();
+}
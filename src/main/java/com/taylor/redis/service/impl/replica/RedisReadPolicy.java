@@ -0,0 +1,26 @@
+package com.taylor.redis.service.impl.replica;
+
+/**
+ * 只读命令的路由策略
+ */
+public enum RedisReadPolicy {
+
+	/* 只读主节点 */
+	MASTER,
+
+	/* 在可用的从节点间轮询, 没有可用的从节点时读主节点 */
+	PREFER_REPLICA,
+
+	/* 在主节点和可用的从节点间轮询 */
+	ROUND_ROBIN,
+
+	/* 主节点和可用的从节点中平均延迟最低的 */
+	LEAST_LATENCY;
+
+	/**
+	 * @param name 如master, prefer-replica, round-robin, least-latency, 不区分大小写
+	 */
+	public static RedisReadPolicy parse(String name) {
+		return valueOf(name.trim().replace('-', '_').toUpperCase());
+	}
+}
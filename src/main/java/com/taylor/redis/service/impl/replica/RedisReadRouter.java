@@ -0,0 +1,385 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import com.taylor.redis.common.shard.RedisMasterSlaverGroup;
+import com.taylor.redis.common.shard.RedisShardInfo;
+import com.taylor.redis.service.impl.RedisJedisFactory;
+import com.taylor.redis.service.impl.RedisJedisPool;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 只读命令的节点选择: 每个分片组的从节点各建一个连接池, 按读策略在主节点和可用的从节点中选择.
+ * 后台定期用INFO replication检查从节点, 复制断开或与主节点失联超过maxLagSeconds的从节点不再读取, 直到恢复.
+ * 收到主节点切换的通知后按新的主节点重新划分主从.
+ * 每秒比较同组节点的延迟, 从节点的延迟超过其他节点中位数的ejectRatio倍时剔除ejectMillis.
+ */
+@Log4j2
+public class RedisReadRouter implements RedisFailoverListener {
+
+	private static class GroupNodes {
+
+		private volatile RedisReplicaNode master;
+
+		/* 切换主节点时整体替换 */
+		private volatile List<RedisReplicaNode> replicas;
+
+		/* 配置的所有节点 */
+		private final List<RedisShardInfo> infos;
+
+		/* host:port -> 从节点, 节点成为主节点后保留连接池, 降回从节点时复用 */
+		private final Map<String, RedisReplicaNode> nodes = new HashMap<String, RedisReplicaNode>();
+
+		/* 轮询计数 */
+		private final AtomicInteger next = new AtomicInteger();
+
+		GroupNodes(List<RedisShardInfo> infos) {
+			this.infos = infos;
+		}
+	}
+
+	private final RedisReadPolicy policy;
+
+	private final GenericObjectPoolConfig poolConfig;
+
+	private final long downMillis;
+
+	private final int maxLagSeconds;
+
+	private final long checkSeconds;
+
+	/* 节点延迟滑动平均的衰减时间(ms) */
+	private final long decayMillis;
+
+	/* 连接最后一次确认可用后超过该时长才重新校验, 小于等于0时每次校验都PING */
+	private final long validateIdleMillis;
+
+	/* 从节点延迟超过同组其他节点中位数的倍数时剔除, 小于等于0时不剔除 */
+	private double ejectRatio = 3;
+
+	/* 延迟低于该值(us)时不剔除, 避免微秒级的抖动触发剔除 */
+	private long ejectMinMicros = 2000;
+
+	private long ejectMillis = 30000;
+
+	private final Map<Integer, GroupNodes> groups = new HashMap<Integer, GroupNodes>();
+
+	private final ScheduledExecutorService checker;
+
+	public RedisReadRouter(List<RedisMasterSlaverGroup> shardGroups, GenericObjectPoolConfig poolConfig, RedisReadPolicy policy,
+			long downMillis, int maxLagSeconds, long checkSeconds, long decayMillis) {
+		this(shardGroups, poolConfig, policy, downMillis, maxLagSeconds, checkSeconds, decayMillis, 0);
+	}
+
+	public RedisReadRouter(List<RedisMasterSlaverGroup> shardGroups, GenericObjectPoolConfig poolConfig, RedisReadPolicy policy,
+			long downMillis, int maxLagSeconds, long checkSeconds, long decayMillis, long validateIdleMillis) {
+		this.policy = policy;
+		this.poolConfig = poolConfig;
+		this.downMillis = downMillis;
+		this.maxLagSeconds = maxLagSeconds;
+		this.checkSeconds = checkSeconds;
+		this.decayMillis = decayMillis;
+		this.validateIdleMillis = validateIdleMillis;
+		for (RedisMasterSlaverGroup group : shardGroups) {
+			RedisShardInfo master = group.getMaster();
+			if (master == null) {
+				continue;
+			}
+			GroupNodes nodes = new GroupNodes(group.getSlavers() == null ? new ArrayList<RedisShardInfo>() : group.getSlavers());
+			assign(group.getId(), nodes, master);
+			groups.put(group.getId(), nodes);
+		}
+		this.checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "redis-replica-checker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * 以master为主节点, 其余配置的节点为从节点(探测前所有节点都记为从节点)
+	 */
+	private void assign(Integer groupId, GroupNodes nodes, RedisShardInfo master) {
+		List<RedisReplicaNode> replicas = new ArrayList<RedisReplicaNode>();
+		for (RedisShardInfo slaver : nodes.infos) {
+			if (RedisTopologyMonitor.sameNode(slaver, master)) {
+				continue;
+			}
+			String address = RedisTopologyMonitor.address(slaver);
+			RedisReplicaNode replica = nodes.nodes.get(address);
+			if (replica == null) {
+				JedisPool pool = new RedisJedisPool(poolConfig,
+						new RedisJedisFactory(slaver.getHost(), slaver.getPort(), slaver.getTimeout(), slaver.getPassword(), 0, validateIdleMillis));
+				replica = new RedisReplicaNode("group " + groupId + " replica " + address, pool, decayMillis);
+				nodes.nodes.put(address, replica);
+			}
+			replicas.add(replica);
+		}
+		nodes.replicas = replicas;
+		nodes.master = new RedisReplicaNode("group " + groupId + " master " + RedisTopologyMonitor.address(master), null, decayMillis);
+	}
+
+	/**
+	 * 主节点切换后重新划分主从, 降为从节点的旧主节点要等下次检查确认复制正常后才读取
+	 */
+	@Override
+	public synchronized void onFailover(Integer groupId, RedisShardInfo oldMaster, RedisShardInfo newMaster) {
+		GroupNodes nodes = groups.get(groupId);
+		if (nodes == null) {
+			return;
+		}
+		assign(groupId, nodes, newMaster);
+		RedisReplicaNode demoted = nodes.nodes.get(RedisTopologyMonitor.address(oldMaster));
+		if (demoted != null) {
+			demoted.setLagging(true);
+		}
+	}
+
+	/**
+	 * 先同步检查一次从节点, 再按周期后台检查
+	 */
+	public void start() {
+		checkReplicas();
+		if (checkSeconds > 0) {
+			checker.scheduleWithFixedDelay(new Runnable() {
+
+				public void run() {
+					try {
+						checkReplicas();
+					} catch (Exception e) {
+						log.warn("Check redis replicas failed", e);
+					}
+				}
+			}, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+		}
+		if (ejectRatio > 0 && policy != RedisReadPolicy.MASTER) {
+			checker.scheduleWithFixedDelay(new Runnable() {
+
+				public void run() {
+					try {
+						ejectOutliers();
+					} catch (Exception e) {
+						log.warn("Eject slow redis replicas failed", e);
+					}
+				}
+			}, 1, 1, TimeUnit.SECONDS);
+		}
+	}
+
+	public void setEjectRatio(double ejectRatio) {
+		this.ejectRatio = ejectRatio;
+	}
+
+	public void setEjectMinMicros(long ejectMinMicros) {
+		this.ejectMinMicros = ejectMinMicros;
+	}
+
+	public void setEjectMillis(long ejectMillis) {
+		this.ejectMillis = ejectMillis;
+	}
+
+	public RedisReadPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return 读取的节点, 分组不存在时返回null
+	 */
+	public RedisReplicaNode select(Integer groupId) {
+		GroupNodes nodes = groups.get(groupId);
+		if (nodes == null) {
+			return null;
+		}
+		RedisReplicaNode master = nodes.master;
+		List<RedisReplicaNode> replicas = nodes.replicas;
+		if (policy == RedisReadPolicy.MASTER || replicas.isEmpty()) {
+			return master;
+		}
+		List<RedisReplicaNode> candidates = new ArrayList<RedisReplicaNode>(replicas.size() + 1);
+		if (policy != RedisReadPolicy.PREFER_REPLICA) {
+			candidates.add(master);
+		}
+		for (RedisReplicaNode replica : replicas) {
+			if (replica.isAvailable()) {
+				candidates.add(replica);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return master;
+		}
+		if (policy == RedisReadPolicy.LEAST_LATENCY) {
+			return choose(candidates);
+		}
+		return candidates.get((nodes.next.getAndIncrement() & Integer.MAX_VALUE) % candidates.size());
+	}
+
+	/**
+	 * @return 同组中exclude以外的一个可用节点(含主节点), 没有时返回null
+	 */
+	public RedisReplicaNode selectOther(Integer groupId, RedisReplicaNode exclude) {
+		GroupNodes nodes = groups.get(groupId);
+		if (nodes == null) {
+			return null;
+		}
+		List<RedisReplicaNode> candidates = new ArrayList<RedisReplicaNode>();
+		if (nodes.master != exclude) {
+			candidates.add(nodes.master);
+		}
+		for (RedisReplicaNode replica : nodes.replicas) {
+			if (replica != exclude && replica.isAvailable()) {
+				candidates.add(replica);
+			}
+		}
+		return candidates.isEmpty() ? null : choose(candidates);
+	}
+
+	/**
+	 * 随机取两个候选节点, 选得分(延迟滑动平均 * (进行中的命令数 + 1))低的, 避免所有请求同时涌向延迟最低的节点
+	 */
+	static RedisReplicaNode choose(List<RedisReplicaNode> candidates) {
+		int size = candidates.size();
+		if (size == 1) {
+			return candidates.get(0);
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(size);
+		int second = random.nextInt(size - 1);
+		if (second >= first) {
+			second++;
+		}
+		RedisReplicaNode a = candidates.get(first);
+		RedisReplicaNode b = candidates.get(second);
+		return a.getScore() <= b.getScore() ? a : b;
+	}
+
+	/**
+	 * 最近有样本的节点中, 从节点的延迟超过其他节点中位数的ejectRatio倍且超过ejectMinMicros时剔除
+	 */
+	public void ejectOutliers() {
+		long window = decayMillis * 5;
+		for (GroupNodes nodes : groups.values()) {
+			List<RedisReplicaNode> sampled = new ArrayList<RedisReplicaNode>();
+			if (nodes.master.hasRecentSample(window)) {
+				sampled.add(nodes.master);
+			}
+			for (RedisReplicaNode replica : nodes.replicas) {
+				if (replica.isAvailable() && replica.hasRecentSample(window)) {
+					sampled.add(replica);
+				}
+			}
+			if (sampled.size() < 2) {
+				continue;
+			}
+			for (RedisReplicaNode node : sampled) {
+				if (node.isMaster() || node.getLatencyMicros() < ejectMinMicros) {
+					continue;
+				}
+				List<Double> peers = new ArrayList<Double>(sampled.size() - 1);
+				for (RedisReplicaNode peer : sampled) {
+					if (peer != node) {
+						peers.add(peer.getLatencyMicros());
+					}
+				}
+				Collections.sort(peers);
+				double median = peers.size() % 2 == 1 ? peers.get(peers.size() / 2)
+						: (peers.get(peers.size() / 2 - 1) + peers.get(peers.size() / 2)) / 2;
+				if (node.getLatencyMicros() > median * ejectRatio) {
+					node.eject(ejectMillis);
+					log.warn("Redis " + node + " ejected for " + ejectMillis + "ms, latency " + (long) node.getLatencyMicros() + "us, peers median "
+							+ (long) median + "us");
+				}
+			}
+		}
+	}
+
+	/**
+	 * 从节点连接出错, downMillis内不再读取
+	 */
+	public void markDown(RedisReplicaNode node) {
+		if (!node.isMaster()) {
+			node.markDown(downMillis);
+			log.warn("Redis " + node + " marked down for " + downMillis + "ms");
+		}
+	}
+
+	/**
+	 * 从节点暂时不能提供读取(如加载数据或与主节点断开)
+	 */
+	public void markLagging(RedisReplicaNode node) {
+		if (!node.isMaster()) {
+			node.setLagging(true);
+			log.warn("Redis " + node + " marked lagging until next check");
+		}
+	}
+
+	public List<RedisReplicaNode> getReplicas(Integer groupId) {
+		GroupNodes nodes = groups.get(groupId);
+		return nodes == null ? Collections.<RedisReplicaNode> emptyList() : Collections.unmodifiableList(nodes.replicas);
+	}
+
+	public void checkReplicas() {
+		for (GroupNodes nodes : groups.values()) {
+			for (RedisReplicaNode replica : nodes.replicas) {
+				checkReplica(replica);
+			}
+		}
+	}
+
+	private void checkReplica(RedisReplicaNode replica) {
+		Jedis jedis = null;
+		try {
+			jedis = replica.getPool().getResource();
+			boolean lagging = isLagging(jedis.info("replication"));
+			if (lagging != replica.isLagging()) {
+				log.warn("Redis " + replica + (lagging ? " is lagging behind master" : " caught up with master"));
+			}
+			replica.setLagging(lagging);
+		} catch (Exception e) {
+			log.warn("Check redis " + replica + " failed", e);
+			replica.markDown(downMillis);
+		} finally {
+			if (jedis != null) {
+				jedis.close();
+			}
+		}
+	}
+
+	private boolean isLagging(String info) {
+		Map<String, String> fields = RedisTopologyMonitor.parseInfo(info);
+		if (!"slave".equals(fields.get("role")) || !"up".equals(fields.get("master_link_status"))) {
+			return true;
+		}
+		if ("1".equals(fields.get("master_sync_in_progress"))) {
+			return true;
+		}
+		String lastIo = fields.get("master_last_io_seconds_ago");
+		return maxLagSeconds > 0 && lastIo != null && Integer.parseInt(lastIo) > maxLagSeconds;
+	}
+
+	public void shutdown() {
+		checker.shutdown();
+		for (GroupNodes nodes : groups.values()) {
+			for (RedisReplicaNode replica : nodes.nodes.values()) {
+				replica.getPool().destroy();
+			}
+		}
+	}
+}
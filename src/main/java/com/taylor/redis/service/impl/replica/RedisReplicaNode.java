@@ -0,0 +1,143 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 分片组内可供读取的节点: 从节点持有自己的连接池, 主节点的连接仍由分片客户端管理(pool为空).
+ * 从节点连接出错后暂停一段时间, 复制延迟过大时暂停到下次检测恢复为止, 延迟远高于同组节点时暂时剔除.
+ * 记录按时间衰减的命令耗时滑动平均和进行中的命令数, 两者相乘作为选择节点的得分.
+ */
+public class RedisReplicaNode {
+
+	private final String name;
+
+	private final JedisPool pool;
+
+	/* 滑动平均的衰减时间(ms): 距上个样本越久, 新样本的权重越大; 长时间没有样本时得分也随之衰减, 让节点重新得到请求 */
+	private final long decayMillis;
+
+	/* 在此之前不读该节点 */
+	private volatile long downUntil;
+
+	/* 复制断开或延迟过大 */
+	private volatile boolean lagging;
+
+	/* 延迟过高被剔除, 在此之前不读该节点 */
+	private volatile long ejectedUntil;
+
+	/* 命令耗时的滑动平均(us), 0表示还没有样本; 并发更新时允许丢失少量样本 */
+	private volatile double latencyMicros;
+
+	private volatile long lastSampleTime;
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+
+	private final LongAdder ejections = new LongAdder();
+
+	public RedisReplicaNode(String name, JedisPool pool, long decayMillis) {
+		this.name = name;
+		this.pool = pool;
+		this.decayMillis = Math.max(1, decayMillis);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public JedisPool getPool() {
+		return pool;
+	}
+
+	public boolean isMaster() {
+		return pool == null;
+	}
+
+	public boolean isAvailable() {
+		if (isMaster()) {
+			return true;
+		}
+		long now = System.currentTimeMillis();
+		return !lagging && now >= downUntil && now >= ejectedUntil;
+	}
+
+	public void markDown(long millis) {
+		downUntil = System.currentTimeMillis() + millis;
+	}
+
+	public boolean isLagging() {
+		return lagging;
+	}
+
+	public void setLagging(boolean lagging) {
+		this.lagging = lagging;
+	}
+
+	public void eject(long millis) {
+		ejectedUntil = System.currentTimeMillis() + millis;
+		ejections.increment();
+	}
+
+	public boolean isEjected() {
+		return System.currentTimeMillis() < ejectedUntil;
+	}
+
+	public long getEjectionCount() {
+		return ejections.sum();
+	}
+
+	/**
+	 * 命令开始前调用, 与{@link #end()}成对
+	 */
+	public void begin() {
+		outstanding.incrementAndGet();
+	}
+
+	public void end() {
+		outstanding.decrementAndGet();
+	}
+
+	public int getOutstanding() {
+		return outstanding.get();
+	}
+
+	public void recordLatency(long nanos) {
+		double micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		long now = System.currentTimeMillis();
+		double current = latencyMicros;
+		if (current == 0) {
+			latencyMicros = micros;
+		} else {
+			double weight = Math.exp(-(double) (now - lastSampleTime) / decayMillis);
+			latencyMicros = current * weight + micros * (1 - weight);
+		}
+		lastSampleTime = now;
+	}
+
+	public double getLatencyMicros() {
+		return latencyMicros;
+	}
+
+	/**
+	 * @return windowMillis内是否有样本, 长时间没有样本的滑动平均不能代表当前延迟
+	 */
+	public boolean hasRecentSample(long windowMillis) {
+		return latencyMicros > 0 && System.currentTimeMillis() - lastSampleTime <= windowMillis;
+	}
+
+	/**
+	 * @return 衰减后的耗时滑动平均 * (进行中的命令数 + 1), 越小越好
+	 */
+	public double getScore() {
+		double idle = System.currentTimeMillis() - lastSampleTime;
+		return latencyMicros * Math.exp(-idle / decayMillis) * (outstanding.get() + 1);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
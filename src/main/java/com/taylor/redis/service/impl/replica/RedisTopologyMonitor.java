@@ -0,0 +1,376 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import com.taylor.redis.common.shard.RedisMasterSlaverGroup;
+import com.taylor.redis.common.shard.RedisShardInfo;
+import com.taylor.redis.service.impl.RedisJedisFactory;
+import com.taylor.redis.service.impl.RedisJedisPool;
+
+import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 分片组主节点的持续探测: 按周期在每个节点的常驻连接上执行INFO replication, 当前主节点降为从节点而另一个节点成为主节点时,
+ * 为新主节点建连接池并整体替换该组的主节点连接池, 旧连接池等drainMillis让借出的连接归还后再销毁.
+ * 切换回启动时探测的主节点时改回分片客户端自身的连接池.
+ */
+@Log4j2
+public class RedisTopologyMonitor implements RedisTopologyMonitorMXBean {
+
+	private static class GroupState {
+
+		private final Integer id;
+
+		/* 配置的所有节点 */
+		private final List<RedisShardInfo> nodes;
+
+		/* 启动时探测的主节点, 连接池由分片客户端管理 */
+		private final RedisShardInfo initialMaster;
+
+		private volatile RedisShardInfo master;
+
+		/* 切换后的主节点连接池, 为空时使用分片客户端自身的连接池 */
+		private volatile JedisPool pool;
+
+		GroupState(Integer id, List<RedisShardInfo> nodes, RedisShardInfo master) {
+			this.id = id;
+			this.nodes = nodes;
+			this.initialMaster = master;
+			this.master = master;
+		}
+	}
+
+	private final GenericObjectPoolConfig poolConfig;
+
+	private final long probeSeconds;
+
+	private final long drainMillis;
+
+	/* 切换后的主节点连接池中, 连接最后一次确认可用后超过该时长才重新校验 */
+	private final long validateIdleMillis;
+
+	private final ConcurrentMap<Integer, GroupState> groups = new ConcurrentHashMap<Integer, GroupState>();
+
+	private final List<RedisFailoverListener> listeners = new CopyOnWriteArrayList<RedisFailoverListener>();
+
+	/* 每个节点一个常驻的探测连接(地址 -> 连接), 出错时断开, 下次探测重连; 只在持有this锁时使用 */
+	private final Map<String, Jedis> probeConnections = new HashMap<String, Jedis>();
+
+	private final ScheduledExecutorService scheduler;
+
+	private final LongAdder probes = new LongAdder();
+
+	private final LongAdder probeFailures = new LongAdder();
+
+	private final LongAdder failovers = new LongAdder();
+
+	private volatile long lastFailoverTime;
+
+	private ObjectName objectName;
+
+	public RedisTopologyMonitor(List<RedisMasterSlaverGroup> shardGroups, GenericObjectPoolConfig poolConfig, long probeSeconds, long drainMillis) {
+		this(shardGroups, poolConfig, probeSeconds, drainMillis, 0);
+	}
+
+	public RedisTopologyMonitor(List<RedisMasterSlaverGroup> shardGroups, GenericObjectPoolConfig poolConfig, long probeSeconds, long drainMillis,
+			long validateIdleMillis) {
+		this.poolConfig = poolConfig;
+		this.probeSeconds = probeSeconds;
+		this.drainMillis = drainMillis;
+		this.validateIdleMillis = validateIdleMillis;
+		for (RedisMasterSlaverGroup group : shardGroups) {
+			if (group.getMaster() == null) {
+				continue;
+			}
+			List<RedisShardInfo> nodes = new ArrayList<RedisShardInfo>();
+			nodes.add(group.getMaster());
+			if (group.getSlavers() != null) {
+				for (RedisShardInfo slaver : group.getSlavers()) {
+					if (!sameNode(slaver, group.getMaster())) {
+						nodes.add(slaver);
+					}
+				}
+			}
+			groups.put(group.getId(), new GroupState(group.getId(), nodes, group.getMaster()));
+		}
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "redis-topology-monitor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public void start() {
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			public void run() {
+				try {
+					probe();
+				} catch (Exception e) {
+					log.warn("Probe redis shard groups failed", e);
+				}
+			}
+		}, probeSeconds, probeSeconds, TimeUnit.SECONDS);
+	}
+
+	public void addListener(RedisFailoverListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(RedisFailoverListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return 切换后的主节点连接池, 没有切换过时返回null
+	 */
+	public JedisPool getMasterPool(Integer groupId) {
+		GroupState state = groups.get(groupId);
+		return state == null ? null : state.pool;
+	}
+
+	public RedisShardInfo getMaster(Integer groupId) {
+		GroupState state = groups.get(groupId);
+		return state == null ? null : state.master;
+	}
+
+	/**
+	 * 探测所有分片组, 发现主节点变化时切换
+	 */
+	public synchronized void probe() {
+		probes.increment();
+		for (GroupState state : groups.values()) {
+			probeGroup(state);
+		}
+	}
+
+	private void probeGroup(GroupState state) {
+		Map<RedisShardInfo, Map<String, String>> infos = new HashMap<RedisShardInfo, Map<String, String>>();
+		for (RedisShardInfo node : state.nodes) {
+			Map<String, String> info = replicationInfo(node);
+			if (info != null) {
+				infos.put(node, info);
+			}
+		}
+		RedisShardInfo current = state.master;
+		Map<String, String> currentInfo = infos.get(current);
+		if (currentInfo != null && "master".equals(currentInfo.get("role"))) {
+			return;
+		}
+		RedisShardInfo elected = electMaster(infos);
+		if (elected == null) {
+			/* 切换进行中或节点都不可达, 下次再探测 */
+			if (currentInfo != null) {
+				log.warn("Redis group " + state.id + " master " + address(current) + " is " + currentInfo.get("role") + ", no new master yet");
+			}
+			return;
+		}
+		switchMaster(state, current, elected);
+	}
+
+	/**
+	 * 角色为master的节点中, 优先选其他节点复制的那个, 其次选连接的从节点最多的
+	 */
+	private static RedisShardInfo electMaster(Map<RedisShardInfo, Map<String, String>> infos) {
+		Map<RedisShardInfo, Integer> votes = new HashMap<RedisShardInfo, Integer>();
+		for (Map.Entry<RedisShardInfo, Map<String, String>> entry : infos.entrySet()) {
+			if ("master".equals(entry.getValue().get("role"))) {
+				votes.put(entry.getKey(), parseInt(entry.getValue().get("connected_slaves")));
+			}
+		}
+		for (Map<String, String> info : infos.values()) {
+			if (!"slave".equals(info.get("role"))) {
+				continue;
+			}
+			for (Map.Entry<RedisShardInfo, Integer> vote : votes.entrySet()) {
+				RedisShardInfo node = vote.getKey();
+				if (node.getHost().equals(info.get("master_host")) && String.valueOf(node.getPort()).equals(info.get("master_port"))) {
+					vote.setValue(vote.getValue() + 1000);
+				}
+			}
+		}
+		RedisShardInfo elected = null;
+		int best = -1;
+		for (Map.Entry<RedisShardInfo, Integer> vote : votes.entrySet()) {
+			if (vote.getValue() > best) {
+				elected = vote.getKey();
+				best = vote.getValue();
+			}
+		}
+		return elected;
+	}
+
+	private void switchMaster(GroupState state, RedisShardInfo oldMaster, RedisShardInfo newMaster) {
+		final JedisPool oldPool = state.pool;
+		state.pool = sameNode(newMaster, state.initialMaster) ? null
+				: new RedisJedisPool(poolConfig, new RedisJedisFactory(newMaster.getHost(), newMaster.getPort(), newMaster.getTimeout(), newMaster.getPassword(), 0,
+						validateIdleMillis));
+		state.master = newMaster;
+		failovers.increment();
+		lastFailoverTime = System.currentTimeMillis();
+		log.warn("Redis group " + state.id + " failed over from " + address(oldMaster) + " to " + address(newMaster));
+		if (oldPool != null) {
+			/* 等借出的连接归还后再销毁 */
+			scheduler.schedule(new Runnable() {
+
+				public void run() {
+					oldPool.destroy();
+				}
+			}, drainMillis, TimeUnit.MILLISECONDS);
+		}
+		for (RedisFailoverListener listener : listeners) {
+			try {
+				listener.onFailover(state.id, oldMaster, newMaster);
+			} catch (Exception e) {
+				log.warn("Notify redis failover of group " + state.id + " failed", e);
+			}
+		}
+	}
+
+	private Map<String, String> replicationInfo(RedisShardInfo node) {
+		String address = address(node);
+		Jedis jedis = probeConnections.get(address);
+		try {
+			if (jedis == null) {
+				jedis = new Jedis(node.getHost(), node.getPort(), node.getTimeout());
+				probeConnections.put(address, jedis);
+				if (node.getPassword() != null) {
+					jedis.auth(node.getPassword());
+				}
+			}
+			return parseInfo(jedis.info("replication"));
+		} catch (Exception e) {
+			probeFailures.increment();
+			log.debug("Probe redis " + address + " failed", e);
+			closeProbeConnection(address);
+			return null;
+		}
+	}
+
+	private void closeProbeConnection(String address) {
+		Jedis jedis = probeConnections.remove(address);
+		if (jedis != null) {
+			try {
+				jedis.close();
+			} catch (Exception e) {
+				log.debug("Close probe connection to redis " + address + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 * 解析INFO的输出, 返回字段名到值
+	 */
+	static Map<String, String> parseInfo(String info) {
+		Map<String, String> fields = new HashMap<String, String>();
+		for (String line : info.split("\r?\n")) {
+			int index = line.indexOf(':');
+			if (index > 0) {
+				fields.put(line.substring(0, index), line.substring(index + 1).trim());
+			}
+		}
+		return fields;
+	}
+
+	private static int parseInt(String value) {
+		try {
+			return value == null ? 0 : Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	static boolean sameNode(RedisShardInfo a, RedisShardInfo b) {
+		return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+	}
+
+	static String address(RedisShardInfo node) {
+		return node.getHost() + ":" + node.getPort();
+	}
+
+	public void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.taylor.redis:type=RedisTopologyMonitor,name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(this, objectName);
+			}
+		} catch (Exception e) {
+			log.warn("Register redis topology monitor mbean " + name + " failed", e);
+		}
+	}
+
+	public void shutdown() {
+		/* 已安排的旧连接池销毁仍会执行 */
+		scheduler.shutdown();
+		synchronized (this) {
+			for (String address : new ArrayList<String>(probeConnections.keySet())) {
+				closeProbeConnection(address);
+			}
+		}
+		for (GroupState state : groups.values()) {
+			if (state.pool != null) {
+				state.pool.destroy();
+			}
+		}
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (Exception e) {
+				log.warn("Unregister redis topology monitor mbean " + objectName + " failed", e);
+			}
+		}
+	}
+
+	@Override
+	public Map<String, String> getMasters() {
+		Map<String, String> masters = new TreeMap<String, String>();
+		for (GroupState state : groups.values()) {
+			masters.put("group " + state.id, address(state.master));
+		}
+		return masters;
+	}
+
+	@Override
+	public long getProbeCount() {
+		return probes.sum();
+	}
+
+	@Override
+	public long getProbeFailureCount() {
+		return probeFailures.sum();
+	}
+
+	@Override
+	public long getFailoverCount() {
+		return failovers.sum();
+	}
+
+	@Override
+	public long getLastFailoverTime() {
+		return lastFailoverTime;
+	}
+}
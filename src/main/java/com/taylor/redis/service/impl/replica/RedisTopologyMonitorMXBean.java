@@ -0,0 +1,28 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.util.Map;
+
+/**
+ * 通过JMX暴露的分片组主节点探测统计
+ */
+public interface RedisTopologyMonitorMXBean {
+
+	/**
+	 * 各分片组当前的主节点, key为"group {id}", value为host:port
+	 */
+	Map<String, String> getMasters();
+
+	long getProbeCount();
+
+	/**
+	 * 节点连接或INFO失败的次数
+	 */
+	long getProbeFailureCount();
+
+	long getFailoverCount();
+
+	/**
+	 * 最近一次切换的时间戳(ms), 没有切换过时为0
+	 */
+	long getLastFailoverTime();
+}
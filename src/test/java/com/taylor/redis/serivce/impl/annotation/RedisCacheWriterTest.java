@@ -0,0 +1,151 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.taylor.redis.service.impl.RedisSimpleClient;
+
+import junit.framework.TestCase;
+
+/**
+ * 不启动后台线程, 由shutdown()同步写出剩余的值, 记录每次管道写入的库, 过期时间和key
+ */
+public class RedisCacheWriterTest extends TestCase {
+
+	private static class RecordingClient extends RedisSimpleClient {
+
+		private final List<String> batches = new ArrayList<String>();
+
+		/* 管道写入期间执行, 模拟并发的清除缓存 */
+		private Runnable duringWrite;
+
+		@Override
+		public String setBatchBytes(int DBIndex, Map<String, byte[]> values, int seconds) {
+			batches.add("json " + DBIndex + " " + seconds + " " + values.keySet());
+			return "OK";
+		}
+
+		@Override
+		public String setBatchObjects(int DBIndex, Map<String, Object> values, int seconds) {
+			batches.add("class " + DBIndex + " " + seconds + " " + values.keySet() + " " + values.values());
+			if (duringWrite != null) {
+				duringWrite.run();
+			}
+			return "OK";
+		}
+
+		@Override
+		public Long delBatch(int DBIndex, List<String> keys) {
+			batches.add("del " + DBIndex + " " + keys);
+			return (long) keys.size();
+		}
+	}
+
+	@RedisCacheGet(DBIndex = 3, key = "'user:' + #id", dataType = RedisCacheGet.DataType.CLASS, expire = 60)
+	public String classValue(Long id) {
+		return null;
+	}
+
+	@RedisCacheGet(DBIndex = 3, key = "'json:' + #id", dataType = RedisCacheGet.DataType.JSON, expire = 60)
+	public String jsonValue(Long id) {
+		return null;
+	}
+
+	private RecordingClient client;
+
+	private RedisCacheMetadata classMetadata;
+
+	private RedisCacheMetadata jsonMetadata;
+
+	@Override
+	protected void setUp() throws Exception {
+		client = new RecordingClient();
+		classMetadata = new RedisCacheMetadata(getClass().getMethod("classValue", Long.class));
+		jsonMetadata = new RedisCacheMetadata(getClass().getMethod("jsonValue", Long.class));
+	}
+
+	private static RedisCacheEntry entry(Object value) {
+		return new RedisCacheEntry(value, System.currentTimeMillis(), 1);
+	}
+
+	public void testCoalescesWritesToSameKey() {
+		RedisCacheWriter writer = new RedisCacheWriter(client, 10, 10);
+		writer.submit(classMetadata, 3, "user:1", 60, entry("a"));
+		writer.submit(classMetadata, 3, "user:1", 60, entry("b"));
+		writer.submit(classMetadata, 3, "user:1", 60, entry("c"));
+		assertEquals(1, writer.getQueueDepth());
+		assertEquals(2, writer.getCoalescedCount());
+		assertEquals("c", writer.getPending(3, "user:1").getValue());
+		writer.shutdown();
+		assertEquals(1, client.batches.size());
+		assertEquals("class 3 60 [user:1] [c]", client.batches.get(0));
+		assertEquals(1, writer.getWrittenCount());
+		assertNull(writer.getPending(3, "user:1"));
+	}
+
+	public void testShutdownDrainsGroupedByDBAndExpire() {
+		RedisCacheWriter writer = new RedisCacheWriter(client, 10, 10);
+		writer.submit(classMetadata, 3, "user:1", 60, entry("a"));
+		writer.submit(classMetadata, 3, "user:2", 60, entry("b"));
+		writer.submit(classMetadata, 3, "user:3", 30, entry("c"));
+		writer.submit(jsonMetadata, 4, "json:1", 60, entry("d"));
+		writer.shutdown();
+		assertEquals(3, client.batches.size());
+		assertTrue(client.batches.contains("json 4 60 [json:1]"));
+		assertTrue(client.batches.contains("class 3 30 [user:3] [c]"));
+		assertEquals(4, writer.getWrittenCount());
+		assertEquals(0, writer.getQueueDepth());
+	}
+
+	public void testDropsNewKeysWhenFull() {
+		RedisCacheWriter writer = new RedisCacheWriter(client, 2, 10);
+		assertTrue(writer.submit(classMetadata, 3, "user:1", 60, entry("a")));
+		assertTrue(writer.submit(classMetadata, 3, "user:2", 60, entry("b")));
+		assertFalse(writer.submit(classMetadata, 3, "user:3", 60, entry("c")));
+		// 已在队列中的key仍可覆盖
+		assertTrue(writer.submit(classMetadata, 3, "user:1", 60, entry("d")));
+		assertEquals(1, writer.getDroppedCount());
+		writer.shutdown();
+		assertEquals(2, writer.getWrittenCount());
+	}
+
+	public void testCancelDiscardsPendingWrite() {
+		RedisCacheWriter writer = new RedisCacheWriter(client, 10, 10);
+		writer.submit(classMetadata, 3, "user:1", 60, entry("a"));
+		writer.submit(classMetadata, 3, "user:2", 60, entry("b"));
+		writer.cancel(3, "user:1");
+		writer.cancel(4, "user:2");
+		assertNull(writer.getPending(3, "user:1"));
+		assertEquals(1, writer.getCancelledCount());
+		writer.shutdown();
+		assertEquals(1, client.batches.size());
+		assertEquals("class 3 60 [user:2] [b]", client.batches.get(0));
+	}
+
+	public void testSubmitAfterCancelIsWritten() {
+		RedisCacheWriter writer = new RedisCacheWriter(client, 10, 10);
+		writer.submit(classMetadata, 3, "user:1", 60, entry("a"));
+		writer.cancel(3, "user:1");
+		writer.submit(classMetadata, 3, "user:1", 60, entry("b"));
+		writer.shutdown();
+		assertEquals(1, client.batches.size());
+		assertEquals("class 3 60 [user:1] [b]", client.batches.get(0));
+	}
+
+	public void testCancelDuringWriteDeletesWrittenKey() {
+		final RedisCacheWriter writer = new RedisCacheWriter(client, 10, 10);
+		writer.submit(classMetadata, 3, "user:1", 60, entry("a"));
+		writer.submit(classMetadata, 3, "user:2", 60, entry("b"));
+		client.duringWrite = new Runnable() {
+
+			public void run() {
+				writer.cancel(3, "user:1");
+			}
+		};
+		writer.shutdown();
+		assertEquals(2, client.batches.size());
+		assertEquals("del 3 [user:1]", client.batches.get(1));
+		assertEquals(1, writer.getCancelledCount());
+	}
+}
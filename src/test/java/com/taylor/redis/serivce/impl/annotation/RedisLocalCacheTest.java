@@ -0,0 +1,95 @@
+package com.taylor.redis.serivce.impl.annotation;
+
+import junit.framework.TestCase;
+
+/**
+ * 条数上限, 按访问频率准入, 过期和按前缀失效
+ */
+public class RedisLocalCacheTest extends TestCase {
+
+	private static RedisCacheEntry entry(Object value) {
+		return new RedisCacheEntry(value, System.currentTimeMillis(), 1);
+	}
+
+	public void testGetCountsHitsAndMisses() {
+		RedisLocalCache cache = new RedisLocalCache(100, 60000);
+		assertNull(cache.get("user:1"));
+		cache.put("user:1", entry("a"));
+		assertEquals("a", cache.get("user:1").getValue());
+		cache.put("user:1", entry("b"));
+		assertEquals("b", cache.get("user:1").getValue());
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	public void testSizeIsBounded() {
+		RedisLocalCache cache = new RedisLocalCache(100, 60000);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("user:" + i, entry(i));
+			cache.get("user:" + i);
+		}
+		assertTrue(cache.size() <= 100);
+	}
+
+	public void testFrequentKeysSurviveScan() {
+		RedisLocalCache cache = new RedisLocalCache(100, 60000);
+		for (int i = 0; i < 50; i++) {
+			cache.put("hot:" + i, entry(i));
+		}
+		// 窗口只有1条, 再写一条把最后一个常用key挤出窗口, 之后的访问使它们都升入保护区
+		cache.put("filler", entry("f"));
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 50; i++) {
+				assertNotNull(cache.get("hot:" + i));
+			}
+		}
+		// 只访问一次的key不应挤掉常用的key
+		for (int i = 0; i < 1000; i++) {
+			cache.put("cold:" + i, entry(i));
+			cache.get("cold:" + i);
+		}
+		for (int i = 0; i < 50; i++) {
+			assertNotNull("hot:" + i, cache.get("hot:" + i));
+		}
+		assertTrue(cache.size() <= 100);
+	}
+
+	public void testExpiredEntryIsNotReturned() throws Exception {
+		RedisLocalCache cache = new RedisLocalCache(100, 50);
+		cache.put("user:1", entry("a"));
+		assertNotNull(cache.get("user:1"));
+		Thread.sleep(80);
+		assertNull(cache.get("user:1"));
+		assertEquals(0, cache.size());
+		cache.put("user:1", entry("b"));
+		assertEquals("b", cache.get("user:1").getValue());
+	}
+
+	public void testInvalidate() {
+		RedisLocalCache cache = new RedisLocalCache(100, 60000);
+		cache.put("user:1", entry("a"));
+		cache.put("user:2", entry("b"));
+		cache.invalidate("user:1");
+		cache.invalidate("user:3");
+		assertNull(cache.get("user:1"));
+		assertEquals("b", cache.get("user:2").getValue());
+		assertEquals(1, cache.size());
+	}
+
+	public void testInvalidatePrefix() {
+		RedisLocalCache cache = new RedisLocalCache(100, 60000);
+		for (int i = 0; i < 20; i++) {
+			cache.put("user:" + i, entry(i));
+			cache.get("user:" + i);
+		}
+		cache.put("order:1", entry("o"));
+		cache.invalidatePrefix("user:");
+		assertEquals(1, cache.size());
+		assertNull(cache.get("user:0"));
+		assertEquals("o", cache.get("order:1").getValue());
+		// 失效后的key可以重新写入
+		cache.put("user:0", entry("again"));
+		assertEquals("again", cache.get("user:0").getValue());
+	}
+}
@@ -0,0 +1,84 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.taylor.common.exceptions.CommonRuntimeException;
+
+import junit.framework.TestCase;
+
+/**
+ * 压缩的标记和长度头, 阈值, 以及未压缩的历史值
+ */
+public class RedisValueCompressorTest extends TestCase {
+
+	private static byte[] repeated(int length) {
+		byte[] value = new byte[length];
+		for (int i = 0; i < length; i++) {
+			value[i] = (byte) ('a' + i % 4);
+		}
+		return value;
+	}
+
+	public void testRoundTripWithHeader() {
+		RedisValueCompressor compressor = new RedisValueCompressor(64, 1);
+		byte[] raw = repeated(1000);
+		byte[] compressed = compressor.compress(raw);
+		assertTrue(compressed.length < raw.length);
+		assertEquals(0x1F, compressed[0] & 0xFF);
+		assertEquals(0x9E, compressed[1] & 0xFF);
+		// 原始长度, 大端
+		assertEquals(0, compressed[2]);
+		assertEquals(0, compressed[3]);
+		assertEquals(1000 >>> 8, compressed[4] & 0xFF);
+		assertEquals(1000 & 0xFF, compressed[5] & 0xFF);
+		assertTrue(compressor.isCompressed(compressed));
+		assertTrue(Arrays.equals(raw, compressor.decompress(compressed)));
+	}
+
+	public void testBelowThresholdIsNotCompressed() {
+		RedisValueCompressor compressor = new RedisValueCompressor(64, 1);
+		byte[] raw = repeated(63);
+		assertSame(raw, compressor.compress(raw));
+		assertNull(compressor.compress(null));
+	}
+
+	public void testIncompressibleValueIsKeptRaw() {
+		RedisValueCompressor compressor = new RedisValueCompressor(64, 1);
+		byte[] raw = new byte[1000];
+		new Random(1).nextBytes(raw);
+		raw[0] = 'x';
+		assertSame(raw, compressor.compress(raw));
+		assertFalse(compressor.isCompressed(raw));
+	}
+
+	public void testDisabledCompressorStillDecompresses() {
+		byte[] compressed = new RedisValueCompressor(64, 1).compress(repeated(1000));
+		RedisValueCompressor disabled = new RedisValueCompressor();
+		assertFalse(disabled.isEnabled());
+		byte[] raw = repeated(1000);
+		assertSame(raw, disabled.compress(raw));
+		assertTrue(Arrays.equals(raw, disabled.decompress(compressed)));
+	}
+
+	public void testLegacyValueIsReturnedAsIs() throws Exception {
+		RedisValueCompressor compressor = new RedisValueCompressor(64, 1);
+		byte[] text = "{\"id\":1,\"name\":\"legacy\"}".getBytes("UTF-8");
+		assertSame(text, compressor.decompress(text));
+		byte[] shortValue = { 0x1F, (byte) 0x9E, 0 };
+		assertSame(shortValue, compressor.decompress(shortValue));
+		assertNull(compressor.decompress(null));
+	}
+
+	public void testCorruptedValueThrows() {
+		RedisValueCompressor compressor = new RedisValueCompressor(64, 1);
+		byte[] compressed = compressor.compress(repeated(1000));
+		byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+		try {
+			compressor.decompress(truncated);
+			fail();
+		} catch (CommonRuntimeException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.taylor.redis.service.impl.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * 格式标记与压缩叠加后的读写, 以及切换codec或开启压缩前写入的历史值
+ */
+public class RedisValueSerializerTest extends TestCase {
+
+	private static Map<String, Object> value() {
+		Map<String, Object> value = new HashMap<String, Object>();
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			names.add("name-" + i);
+		}
+		value.put("id", 1L);
+		value.put("names", names);
+		return value;
+	}
+
+	private static RedisValueSerializer compressed(RedisValueCodec codec) {
+		RedisValueSerializer serializer = new RedisValueSerializer(codec);
+		serializer.setCompressor(new RedisValueCompressor(64, 1));
+		return serializer;
+	}
+
+	public void testJavaRoundTripWithCompression() {
+		RedisValueSerializer serializer = compressed(new RedisJavaCodec());
+		byte[] bytes = serializer.serialize(value());
+		assertEquals(0x1F, bytes[0] & 0xFF);
+		assertEquals(value(), serializer.deserialize(bytes));
+	}
+
+	public void testKryoRoundTripWithCompression() {
+		RedisValueSerializer serializer = compressed(new RedisKryoCodec());
+		byte[] bytes = serializer.serialize(value());
+		assertEquals(0x1F, bytes[0] & 0xFF);
+		assertEquals(value(), serializer.deserialize(bytes));
+	}
+
+	public void testLegacyJavaSerializedValue() throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bos);
+		oos.writeObject(value());
+		oos.close();
+		// 没有格式标记, 也没有压缩
+		assertEquals(value(), compressed(new RedisKryoCodec()).deserialize(bos.toByteArray()));
+	}
+
+	public void testReadsValueWrittenByOtherCodec() {
+		byte[] kryo = new RedisValueSerializer(new RedisKryoCodec()).serialize(value());
+		assertEquals(RedisValueCodec.FORMAT_KRYO, kryo[0]);
+		assertEquals(value(), compressed(new RedisJavaCodec()).deserialize(kryo));
+		byte[] java = compressed(new RedisJavaCodec()).serialize(value());
+		assertEquals(value(), new RedisValueSerializer(new RedisKryoCodec()).deserialize(java));
+	}
+
+	public void testNullAndUnknownFormat() {
+		RedisValueSerializer serializer = compressed(new RedisJavaCodec());
+		assertEquals(0, serializer.serialize(null).length);
+		assertNull(serializer.deserialize(null));
+		assertNull(serializer.deserialize(new byte[0]));
+		assertNull(serializer.deserialize(new byte[] { 0x7F, 1, 2 }));
+	}
+}
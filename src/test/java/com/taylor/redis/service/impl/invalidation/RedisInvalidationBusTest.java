@@ -0,0 +1,96 @@
+package com.taylor.redis.service.impl.invalidation;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * 两个节点共用一个内存broker, 验证失效通知的本地回调, 跨节点转发和自身消息过滤
+ */
+public class RedisInvalidationBusTest extends TestCase {
+
+	private static final String TOPIC = "redis.cache.invalidation.test";
+
+	private static class RecordingListener implements RedisInvalidationListener {
+
+		private final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+
+		public void invalidate(int DBIndex, String key) {
+			events.add(DBIndex + ":" + key);
+		}
+
+		public void invalidatePrefix(int DBIndex, String prefix) {
+			events.add(DBIndex + ":" + prefix + "*");
+		}
+
+		String poll() throws InterruptedException {
+			return events.poll(5, TimeUnit.SECONDS);
+		}
+	}
+
+	private RedisInvalidationBus sender;
+
+	private RedisInvalidationBus receiver;
+
+	private RecordingListener sent;
+
+	private RecordingListener received;
+
+	@Override
+	protected void setUp() throws Exception {
+		ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://invalidation-test?broker.persistent=false&broker.useJmx=false");
+		sender = new RedisInvalidationBus(connectionFactory, TOPIC, 5);
+		receiver = new RedisInvalidationBus(connectionFactory, TOPIC, 5);
+		sent = new RecordingListener();
+		received = new RecordingListener();
+		sender.addListener(sent);
+		receiver.addListener(received);
+		sender.start();
+		receiver.start();
+		// 等订阅建立, 之前发出的消息收不到
+		Thread.sleep(500);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		sender.shutdown();
+		receiver.shutdown();
+	}
+
+	public void testPublishNotifiesLocalListenerImmediately() throws Exception {
+		sender.publish(3, "user:1");
+		assertEquals("3:user:1", sent.events.poll());
+	}
+
+	public void testPublishReachesOtherNode() throws Exception {
+		sender.publish(3, "user:1");
+		sender.publishPrefix(-1, "order:");
+		assertEquals("3:user:1", received.poll());
+		assertEquals("-1:order:*", received.poll());
+	}
+
+	public void testOwnMessagesAreFiltered() throws Exception {
+		sender.publish(3, "user:1");
+		assertEquals("3:user:1", received.poll());
+		sender.flush();
+		Thread.sleep(200);
+		assertEquals(0, sender.getReceivedMessages());
+		// 本地回调只有publish时的一次
+		assertEquals("3:user:1", sent.events.poll());
+		assertNull(sent.events.poll());
+	}
+
+	public void testBatchesPendingInvalidations() throws Exception {
+		for (int i = 0; i < 500; i++) {
+			sender.publish(0, "k" + i);
+		}
+		for (int i = 0; i < 500; i++) {
+			assertEquals("0:k" + i, received.poll());
+		}
+		assertTrue("500 invalidations in " + sender.getSentMessages() + " messages", sender.getSentMessages() < 500);
+	}
+}
@@ -0,0 +1,119 @@
+package com.taylor.redis.service.impl.netty;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import junit.framework.TestCase;
+
+/**
+ * 各类应答的解码, 以及一个应答被拆成多个包, 或多个应答在同一个包中
+ */
+public class RedisReplyDecoderTest extends TestCase {
+
+	private DecoderEmbedder<Object> embedder;
+
+	@Override
+	protected void setUp() throws Exception {
+		embedder = new DecoderEmbedder<Object>(new RedisReplyDecoder());
+	}
+
+	private void offer(String data) {
+		embedder.offer(ChannelBuffers.wrappedBuffer(SafeEncoder.encode(data)));
+	}
+
+	private Object decode(String data) {
+		offer(data);
+		return embedder.poll();
+	}
+
+	public void testSimpleReplies() {
+		assertEquals("OK", decode("+OK\r\n"));
+		assertEquals(Long.valueOf(42), decode(":42\r\n"));
+		assertEquals("hello", SafeEncoder.encode((byte[]) decode("$5\r\nhello\r\n")));
+		assertEquals(0, ((byte[]) decode("$0\r\n\r\n")).length);
+		assertSame(RedisReplyDecoder.NIL, decode("$-1\r\n"));
+		assertSame(RedisReplyDecoder.NIL, decode("*-1\r\n"));
+		Object error = decode("-ERR wrong type\r\n");
+		assertTrue(error instanceof JedisDataException);
+		assertEquals("ERR wrong type", ((JedisDataException) error).getMessage());
+	}
+
+	public void testBulkContainingLineBreak() {
+		assertEquals("a\r\nb", SafeEncoder.encode((byte[]) decode("$4\r\na\r\nb\r\n")));
+	}
+
+	public void testMultiBulkWithNilAndNested() {
+		List<?> reply = (List<?>) decode("*3\r\n$1\r\na\r\n$-1\r\n*2\r\n:1\r\n+x\r\n");
+		assertEquals(3, reply.size());
+		assertEquals("a", SafeEncoder.encode((byte[]) reply.get(0)));
+		assertNull(reply.get(1));
+		assertEquals(Arrays.asList(Long.valueOf(1), "x"), reply.get(2));
+	}
+
+	public void testReplySplitAtEveryByte() {
+		String reply = "*3\r\n$5\r\nhello\r\n$-1\r\n*2\r\n:12\r\n-ERR x\r\n";
+		for (int split = 1; split < reply.length(); split++) {
+			offer(reply.substring(0, split));
+			assertNull("split at " + split, embedder.poll());
+			offer(reply.substring(split));
+			List<?> decoded = (List<?>) embedder.poll();
+			assertEquals("split at " + split, 3, decoded.size());
+			assertEquals("hello", SafeEncoder.encode((byte[]) decoded.get(0)));
+			assertNull(decoded.get(1));
+			assertEquals(Long.valueOf(12), ((List<?>) decoded.get(2)).get(0));
+			assertTrue(((List<?>) decoded.get(2)).get(1) instanceof JedisDataException);
+		}
+	}
+
+	public void testReplyDeliveredByteByByte() {
+		String reply = "$11\r\nhello world\r\n";
+		for (int i = 0; i < reply.length() - 1; i++) {
+			offer(reply.substring(i, i + 1));
+			assertNull(embedder.poll());
+		}
+		offer(reply.substring(reply.length() - 1));
+		assertEquals("hello world", SafeEncoder.encode((byte[]) embedder.poll()));
+	}
+
+	public void testKeepsParsedElementsOfPartialReply() throws Exception {
+		RedisReplyDecoder decoder = new RedisReplyDecoder();
+		String head = "*3\r\n$1\r\na\r\n*2\r\n:1\r\n";
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		buffer.writeBytes(SafeEncoder.encode(head + "$5\r\nhel"));
+		assertNull(decoder.decode(null, null, buffer));
+		// 已解析的元素不再回退, 只回退未完成的批量回复
+		assertEquals(head.length(), buffer.readerIndex());
+		buffer.writeBytes(SafeEncoder.encode("lo\r\n:2\r\n"));
+		List<?> reply = (List<?>) decoder.decode(null, null, buffer);
+		assertEquals(3, reply.size());
+		assertEquals(Long.valueOf(1), ((List<?>) reply.get(1)).get(0));
+		assertEquals("hello", SafeEncoder.encode((byte[]) ((List<?>) reply.get(1)).get(1)));
+		assertEquals(Long.valueOf(2), reply.get(2));
+		assertFalse(buffer.readable());
+	}
+
+	public void testEmptyMultiBulk() {
+		assertEquals(0, ((List<?>) decode("*0\r\n")).size());
+		List<?> reply = (List<?>) decode("*2\r\n*0\r\n$-1\r\n");
+		assertEquals(0, ((List<?>) reply.get(0)).size());
+		assertNull(reply.get(1));
+	}
+
+	public void testSeveralRepliesInOneBuffer() {
+		offer("+OK\r\n:1\r\n$3\r\nabc\r\n$-1\r\n+PART");
+		assertEquals("OK", embedder.poll());
+		assertEquals(Long.valueOf(1), embedder.poll());
+		assertEquals("abc", SafeEncoder.encode((byte[]) embedder.poll()));
+		assertSame(RedisReplyDecoder.NIL, embedder.poll());
+		assertNull(embedder.poll());
+		offer("IAL\r\n");
+		assertEquals("PARTIAL", embedder.poll());
+	}
+}
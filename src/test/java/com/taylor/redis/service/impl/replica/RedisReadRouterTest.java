@@ -0,0 +1,160 @@
+package com.taylor.redis.service.impl.replica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.taylor.redis.common.shard.RedisMasterSlaverGroup;
+import com.taylor.redis.common.shard.RedisShardInfo;
+
+import junit.framework.TestCase;
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * 按得分在两个随机候选中选择, 以及按同组延迟中位数剔除慢节点; 不启动后台检查, 也不连接redis
+ */
+public class RedisReadRouterTest extends TestCase {
+
+	private static final Integer GROUP = 1;
+
+	private RedisReadRouter router;
+
+	private RedisReplicaNode master;
+
+	private RedisReplicaNode fast;
+
+	private RedisReplicaNode slow;
+
+	private static RedisShardInfo shard(int port) {
+		RedisShardInfo info = new RedisShardInfo();
+		info.setGroupId(GROUP);
+		info.setHost("127.0.0.1");
+		info.setPort(port);
+		info.setTimeout(1000);
+		return info;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		RedisMasterSlaverGroup group = new RedisMasterSlaverGroup();
+		group.setId(GROUP);
+		group.setMaster(shard(7000));
+		group.addSlaver(shard(7000));
+		group.addSlaver(shard(7001));
+		group.addSlaver(shard(7002));
+		router = new RedisReadRouter(Collections.singletonList(group), new JedisPoolConfig(), RedisReadPolicy.ROUND_ROBIN, 1000, 10, 0, 1000);
+		// 轮询的第一个候选是主节点
+		master = router.select(GROUP);
+		fast = router.getReplicas(GROUP).get(0);
+		slow = router.getReplicas(GROUP).get(1);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		router.shutdown();
+	}
+
+	private static RedisReplicaNode node(String name, long latencyMicros) {
+		RedisReplicaNode node = new RedisReplicaNode(name, null, 1000);
+		node.recordLatency(latencyMicros * 1000);
+		return node;
+	}
+
+	public void testTopology() {
+		assertTrue(master.isMaster());
+		assertEquals(2, router.getReplicas(GROUP).size());
+		assertFalse(fast.isMaster());
+		assertNull(router.select(2));
+	}
+
+	public void testChooseSingleCandidate() {
+		RedisReplicaNode only = node("only", 100);
+		assertSame(only, RedisReadRouter.choose(Collections.singletonList(only)));
+	}
+
+	public void testChooseLowerScoreOfTwo() {
+		RedisReplicaNode a = node("a", 100);
+		RedisReplicaNode b = node("b", 10000);
+		List<RedisReplicaNode> candidates = Arrays.asList(a, b);
+		for (int i = 0; i < 100; i++) {
+			assertSame(a, RedisReadRouter.choose(candidates));
+		}
+	}
+
+	public void testChooseWeighsOutstandingCommands() {
+		RedisReplicaNode a = node("a", 100);
+		RedisReplicaNode b = node("b", 100);
+		for (int i = 0; i < 3; i++) {
+			a.begin();
+		}
+		for (int i = 0; i < 100; i++) {
+			assertSame(b, RedisReadRouter.choose(Arrays.asList(a, b)));
+		}
+		for (int i = 0; i < 3; i++) {
+			a.end();
+		}
+	}
+
+	public void testChooseSpreadsAcrossCandidates() {
+		List<RedisReplicaNode> candidates = new ArrayList<RedisReplicaNode>();
+		for (int i = 1; i <= 3; i++) {
+			candidates.add(node("n" + i, i * 100));
+		}
+		int[] chosen = new int[3];
+		for (int i = 0; i < 3000; i++) {
+			chosen[candidates.indexOf(RedisReadRouter.choose(candidates))]++;
+		}
+		// 最慢的节点总是输给另一个候选, 其余两个都会被选中
+		assertEquals(0, chosen[2]);
+		assertTrue(chosen[0] > chosen[1]);
+		assertTrue(chosen[1] > 0);
+	}
+
+	public void testEjectsSlowReplica() {
+		master.recordLatency(500 * 1000);
+		fast.recordLatency(600 * 1000);
+		slow.recordLatency(50000 * 1000);
+		router.ejectOutliers();
+		assertTrue(slow.isEjected());
+		assertFalse(slow.isAvailable());
+		assertEquals(1, slow.getEjectionCount());
+		assertFalse(fast.isEjected());
+		// 被剔除的节点不再作为对冲的候选
+		for (int i = 0; i < 20; i++) {
+			assertNotSame(slow, router.selectOther(GROUP, fast));
+		}
+	}
+
+	public void testKeepsReplicaBelowMinLatency() {
+		master.recordLatency(100 * 1000);
+		fast.recordLatency(100 * 1000);
+		slow.recordLatency(1500 * 1000);
+		router.ejectOutliers();
+		assertFalse(slow.isEjected());
+	}
+
+	public void testNeedsTwoSampledNodes() {
+		slow.recordLatency(50000 * 1000);
+		router.ejectOutliers();
+		assertFalse(slow.isEjected());
+	}
+
+	public void testNeverEjectsMaster() {
+		master.recordLatency(50000 * 1000);
+		fast.recordLatency(100 * 1000);
+		slow.recordLatency(100 * 1000);
+		router.ejectOutliers();
+		assertTrue(master.isAvailable());
+		assertFalse(fast.isEjected());
+		assertFalse(slow.isEjected());
+	}
+
+	public void testSelectOtherExcludesNode() {
+		slow.markDown(60000);
+		for (int i = 0; i < 20; i++) {
+			assertSame(master, router.selectOther(GROUP, fast));
+			assertNotSame(master, router.selectOther(GROUP, master));
+		}
+	}
+}